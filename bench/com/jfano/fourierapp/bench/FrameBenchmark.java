@@ -0,0 +1,92 @@
+package com.jfano.fourierapp.bench;
+
+import com.jfano.fourierapp.ui.Drawer;
+import com.jfano.fourierapp.ui.ScrollingTrace;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the per-frame work of the application: advancing a <code>ScrollingTrace</code>, and a
+ * full <code>Drawer</code> update and draw. Runs headless, drawing into an offscreen image.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class FrameBenchmark {
+
+  @Param({"DOTS", "POLYLINE"})
+  public Drawer.TraceMode traceMode;
+
+  private final Ellipse2D pen = new Ellipse2D.Double();
+  private Drawer drawer;
+  private ScrollingTrace trace;
+  private BufferedImage canvas;
+  private int step;
+
+  @Setup
+  public void create() throws IOException {
+
+    drawer = new Drawer();
+    drawer.setTraceMode(traceMode);
+    trace = new ScrollingTrace(500, 384);
+
+    canvas = new BufferedImage(1280, 768, BufferedImage.TYPE_INT_ARGB);
+
+  }
+
+  @Benchmark
+  public ScrollingTrace scrollingTraceAdvance() {
+
+    step = (step + 7) % 384;
+
+    trace.beginFrame();
+    trace.drawFrameAndAdvance(draw -> {
+      draw.setColor(Color.RED);
+      pen.setFrame(0, step, 4, 4);
+      draw.fill(pen);
+    });
+    trace.endFrame();
+
+    return trace;
+
+  }
+
+  @Benchmark
+  public Drawer drawerUpdate() {
+    drawer.update();
+    return drawer;
+  }
+
+  @Benchmark
+  public BufferedImage drawerDraw() {
+
+    // Mirrors Driver.render, which draws each frame with a fresh graphics context
+    Graphics2D win = canvas.createGraphics();
+    win.setColor(Color.WHITE);
+    win.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+    drawer.draw(win);
+    win.dispose();
+
+    return canvas;
+
+  }
+
+}
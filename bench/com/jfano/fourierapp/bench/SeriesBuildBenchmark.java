@@ -0,0 +1,69 @@
+package com.jfano.fourierapp.bench;
+
+import com.jfano.fourierapp.math.functions.ShapeFunction;
+import com.jfano.fourierapp.state.CoefficientStore;
+import com.jfano.fourierapp.state.FourierSeriesSpinners;
+import com.jfano.fourierapp.state.FourierSeriesSpinners.Derivation;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the construction of a <code>FourierSeriesSpinners</code> from each bundled sample
+ * shape, and loading the same series back from a <code>CoefficientStore</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeriesBuildBenchmark {
+
+  @Param({"H.svg", "pencils.svg", "flower.svg"})
+  public String shape;
+
+  @Param({"20", "200", "2000"})
+  public int seriesLength;
+
+  @Param({"800", "4096"})
+  public int iterations;
+
+  @Param({"QUADRATURE", "FFT", "ANALYTIC"})
+  public Derivation derivation;
+
+  private ShapeFunction goal;
+  private byte[] goalHash;
+  private CoefficientStore store;
+
+  @Setup
+  public void load() throws IOException {
+    goal = new ShapeFunction("/sample_shapes/" + shape);
+    goalHash = goal.contentHash();
+    // Derive and store the series once, so every measured load finds it
+    store = new CoefficientStore(Files.createTempDirectory("series-bench"));
+    store.load(goalHash, goal, seriesLength, iterations, derivation);
+  }
+
+  @Benchmark
+  public FourierSeriesSpinners build() {
+    return new FourierSeriesSpinners(goal, seriesLength, iterations, derivation);
+  }
+
+  @Benchmark
+  public FourierSeriesSpinners loadStored() {
+    return store.load(goalHash, goal, seriesLength, iterations, derivation);
+  }
+
+}
@@ -0,0 +1,74 @@
+package com.jfano.fourierapp.bench;
+
+import com.jfano.fourierapp.math.functions.ShapeFunction;
+import com.jfano.fourierapp.state.FourierSeriesSpinners;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures solving a <code>FourierSeriesSpinners</code>, both one step at a time through
+ * <code>setTime</code> and for a whole cycle at once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeriesEvaluationBenchmark {
+
+  private static final int STEPS_PER_CYCLE = 9000;
+
+  @Param({"H.svg", "pencils.svg", "flower.svg"})
+  public String shape;
+
+  @Param({"20", "200", "2000"})
+  public int seriesLength;
+
+  private FourierSeriesSpinners direct, stepped;
+  private double[] real = new double[STEPS_PER_CYCLE], img = new double[STEPS_PER_CYCLE];
+  private int step;
+
+  @Setup
+  public void build() throws IOException {
+
+    ShapeFunction goal = new ShapeFunction("/sample_shapes/" + shape);
+
+    direct = new FourierSeriesSpinners(goal, seriesLength, 4096);
+    stepped = new FourierSeriesSpinners(goal, seriesLength, 4096);
+    stepped.enablePhasorStepping(1.0 / STEPS_PER_CYCLE, 1000);
+
+  }
+
+  @Benchmark
+  public double setTime() {
+    step = (step + 1) % STEPS_PER_CYCLE;
+    direct.setTime(step / (double) STEPS_PER_CYCLE);
+    return direct.getSolutionReal();
+  }
+
+  @Benchmark
+  public double setTimePhasorStepping() {
+    step = (step + 1) % STEPS_PER_CYCLE;
+    stepped.setTime(step / (double) STEPS_PER_CYCLE);
+    return stepped.getSolutionReal();
+  }
+
+  @Benchmark
+  public double[] solveUniformCycle() {
+    direct.solveUniform(real, img);
+    return real;
+  }
+
+}
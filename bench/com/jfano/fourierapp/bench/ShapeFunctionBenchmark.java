@@ -0,0 +1,61 @@
+package com.jfano.fourierapp.bench;
+
+import com.jfano.fourierapp.math.functions.ShapeFunction;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures loading the bundled sample shapes and sampling the resulting
+ * <code>ShapeFunction</code>s.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShapeFunctionBenchmark {
+
+  @Param({"H.svg", "pencils.svg", "flower.svg"})
+  public String shape;
+
+  @Param({"false", "true"})
+  public boolean arcLengthTiming;
+
+  private ShapeFunction function;
+  private final double[] out = new double[2];
+  private double time;
+
+  @Setup
+  public void create() throws IOException {
+    function = new ShapeFunction("/sample_shapes/" + shape);
+    function.setArcLengthTiming(arcLengthTiming);
+  }
+
+  @Benchmark
+  public double[] solveAtTime() {
+    time = (time + 0.0001234) % 1;
+    function.solveAtTime(time, out);
+    return out;
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public ShapeFunction loadSvg() throws IOException {
+    ShapeFunction loaded = new ShapeFunction("/sample_shapes/" + shape);
+    loaded.setArcLengthTiming(arcLengthTiming);
+    return loaded;
+  }
+
+}
@@ -0,0 +1,28 @@
+package com.jfano.fourierapp.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded when a <code>Driver</code> draws a frame, in its window or offline. The event's duration
+ * covers drawing the frame, and in a window, handing it to the display.
+ */
+@Name("com.jfano.fourierapp.RenderFrame")
+@Label("Render Frame")
+@Category("Fourier Series Applet")
+@Description("A frame drawn by a driver")
+@StackTrace(false)
+public final class RenderFrameEvent extends jdk.jfr.Event {
+
+  @Label("Updates")
+  @Description("Updates performed before the frame was drawn")
+  public long updates;
+
+  @Label("Contents Lost")
+  @Description("Whether the back buffer lost its contents, so the frame must be drawn again")
+  public boolean contentsLost;
+
+}
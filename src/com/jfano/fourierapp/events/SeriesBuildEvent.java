@@ -0,0 +1,31 @@
+package com.jfano.fourierapp.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded when a <code>FourierSeriesSpinners</code> derives its spinners from a goal function.
+ * The event's duration is the time taken to derive them.
+ */
+@Name("com.jfano.fourierapp.SeriesBuild")
+@Label("Series Build")
+@Category("Fourier Series Applet")
+@Description("Derivation of a Fourier series' spinners from its goal function")
+public final class SeriesBuildEvent extends jdk.jfr.Event {
+
+  @Label("Series Length")
+  public int seriesLength;
+
+  @Label("Iterations")
+  @Description("Iterations used to approximate each integral, or 0 if none were needed")
+  public int iterations;
+
+  @Label("Derivation")
+  public String derivation;
+
+  @Label("Parallelism")
+  public int parallelism;
+
+}
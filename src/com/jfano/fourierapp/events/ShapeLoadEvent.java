@@ -0,0 +1,26 @@
+package com.jfano.fourierapp.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded when a <code>ShapeFunction</code> is loaded from an SVG file. The event's duration
+ * covers reading the file, parsing it unless it was cached, and building the function from its
+ * path.
+ */
+@Name("com.jfano.fourierapp.ShapeLoad")
+@Label("Shape Load")
+@Category("Fourier Series Applet")
+@Description("Loading and parsing an SVG file into a shape function")
+public final class ShapeLoadEvent extends jdk.jfr.Event {
+
+  @Label("Source")
+  public String source;
+
+  @Label("Segments")
+  @Description("Lines and curves the shape was split into")
+  public int segments;
+
+}
@@ -0,0 +1,27 @@
+package com.jfano.fourierapp.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded when a <code>Driver</code> performs the updates which came due since its last batch.
+ * The event's duration is the time taken to perform them.
+ */
+@Name("com.jfano.fourierapp.UpdateBatch")
+@Label("Update Batch")
+@Category("Fourier Series Applet")
+@Description("Updates performed together to keep up with the target UPS")
+@StackTrace(false)
+public final class UpdateBatchEvent extends jdk.jfr.Event {
+
+  @Label("Updates")
+  public int updates;
+
+  @Label("Updates Dropped")
+  @Description("Updates dropped by the catch-up policy after falling behind")
+  public long dropped;
+
+}
@@ -0,0 +1,187 @@
+package com.jfano.fourierapp.general;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.function.Consumer;
+
+/**
+ * A transparent layer which is drawn into a little at a time, and composited into every frame.
+ * <br><br>
+ * Once the layer is composited onto a screen whose graphics pipeline is accelerated, it is moved
+ * into a <code>VolatileImage</code> created for that screen, so both drawing into it and
+ * compositing it happen on the GPU. The contents of a <code>VolatileImage</code> can be lost at any
+ * time, such as when the display mode changes, so the layer is given a painter which restores its
+ * full contents when that happens.
+ * <br><br>
+ * Everywhere else, such as offscreen, headless or on an unaccelerated pipeline, the layer falls
+ * back to a <code>BufferedImage</code> with premultiplied alpha, which Java2D composites with its
+ * fastest software loops and may cache in accelerated memory while it is unchanged.
+ * <br><br>
+ * Not thread safe. Draw into and composite the layer from one thread.
+ */
+public class AcceleratedLayer {
+
+  private final int width, height;
+  private final Consumer<Graphics2D> restorer;
+
+  // Holds the layer until it is first composited onto an accelerated screen, or for good if it
+  // never is. Exactly one of image and volatileImage is non-null.
+  private BufferedImage image;
+  private VolatileImage volatileImage;
+  // The last screen found to be unaccelerated, so it is not tried again every frame
+  private GraphicsConfiguration unaccelerated;
+
+  /**
+   * Creates an empty layer.
+   *
+   * @param width    width of the layer
+   * @param height   height of the layer
+   * @param restorer paints the full contents of the layer into a cleared layer, after they were
+   *                 lost
+   */
+  public AcceleratedLayer(int width, int height, Consumer<Graphics2D> restorer) {
+    this.width = width;
+    this.height = height;
+    this.restorer = restorer;
+    this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Whether the layer is currently held in accelerated memory.
+   *
+   * @return true if the layer is backed by an accelerated <code>VolatileImage</code>
+   */
+  public boolean isAccelerated() {
+    return volatileImage != null;
+  }
+
+  /**
+   * Creates a graphics which draws into the layer. Anything drawn while the contents of the layer
+   * are lost is discarded, and must be repainted by the restorer.
+   *
+   * @return the graphics, which the caller must dispose
+   */
+  public Graphics2D createGraphics() {
+    return volatileImage != null ? volatileImage.createGraphics() : image.createGraphics();
+  }
+
+  /**
+   * Erases everything drawn into the layer.
+   */
+  public void clear() {
+    Graphics2D g = createGraphics();
+    clear(g);
+    g.dispose();
+  }
+
+  /**
+   * Composites the layer into the given graphics, with its origin at the graphics' origin.
+   *
+   * @param win the graphics to draw into
+   */
+  public void draw(Graphics2D win) {
+
+    GraphicsConfiguration target = win.getDeviceConfiguration();
+
+    if (image != null && !accelerate(target)) {
+      win.drawImage(image, 0, 0, null);
+      return;
+    }
+
+    // Validate and composite until the contents survive the whole draw
+    do {
+
+      int status = volatileImage.validate(target);
+
+      if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+        // Such as after the window moved to another screen
+        volatileImage.flush();
+        volatileImage = createVolatileImage(target);
+        restore();
+      } else if (status == VolatileImage.IMAGE_RESTORED) {
+        restore();
+      }
+
+      win.drawImage(volatileImage, 0, 0, null);
+
+    } while (volatileImage.contentsLost());
+
+  }
+
+  /**
+   * Moves the layer into a <code>VolatileImage</code> for the given screen, if it is accelerated.
+   *
+   * @return true if the layer was moved
+   */
+  private boolean accelerate(GraphicsConfiguration target) {
+
+    if (target == null || target == unaccelerated
+        || target.getDevice().getType() != GraphicsDevice.TYPE_RASTER_SCREEN) {
+      return false;
+    }
+
+    VolatileImage accelerated = createVolatileImage(target);
+    if (accelerated == null || !accelerated.getCapabilities().isAccelerated()) {
+      if (accelerated != null) {
+        accelerated.flush();
+      }
+      unaccelerated = target;
+      return false;
+    }
+
+    volatileImage = accelerated;
+
+    // Carry over what was drawn so far, rather than repainting it
+    do {
+      if (volatileImage.validate(target) == VolatileImage.IMAGE_INCOMPATIBLE) {
+        volatileImage.flush();
+        volatileImage = createVolatileImage(target);
+      }
+      Graphics2D g = volatileImage.createGraphics();
+      clear(g);
+      g.drawImage(image, 0, 0, null);
+      g.dispose();
+    } while (volatileImage.contentsLost());
+
+    image = null;
+
+    return true;
+
+  }
+
+  private VolatileImage createVolatileImage(GraphicsConfiguration target) {
+    return target.createCompatibleVolatileImage(width, height, Transparency.TRANSLUCENT);
+  }
+
+  /**
+   * Clears the <code>VolatileImage</code> and repaints its contents.
+   */
+  private void restore() {
+
+    Graphics2D g = volatileImage.createGraphics();
+    clear(g);
+    restorer.accept(g);
+    g.dispose();
+
+  }
+
+  private void clear(Graphics2D g) {
+    g.setComposite(AlphaComposite.Clear);
+    g.fillRect(0, 0, width, height);
+    g.setComposite(AlphaComposite.SrcOver);
+  }
+
+}
@@ -0,0 +1,156 @@
+package com.jfano.fourierapp.general;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A layer of content which rarely changes, rendered once into a cached image and composited into
+ * every frame.
+ * <br><br>
+ * The layer is rendered into an image compatible with the graphics it is drawn into, at the scale
+ * of that graphics, so Java2D can keep it in accelerated memory where available. Only the parts of
+ * the image that were painted are composited, so a layer which covers little of the screen costs
+ * little to draw. The layer is rendered again after <code>invalidate</code>, or when it is drawn
+ * into a different device or at a different scale.
+ */
+public class CachedLayer {
+
+  // Size of the square tiles the layer is split into when finding the parts that were painted
+  private static final int TILE_SIZE = 32;
+
+  private final int width, height;
+  private final Consumer<Graphics2D> painter;
+
+  private BufferedImage image;
+  private GraphicsConfiguration config;
+  private double scaleX, scaleY;
+  // Painted runs of tiles, as {x, y, width, height} in image pixels
+  private final List<int[]> runs = new ArrayList<>();
+
+  /**
+   * Creates a layer, which is rendered the first time it is drawn.
+   *
+   * @param width   width of the layer
+   * @param height  height of the layer
+   * @param painter paints the layer's content, from the origin of the layer
+   */
+  public CachedLayer(int width, int height, Consumer<Graphics2D> painter) {
+    this.width = width;
+    this.height = height;
+    this.painter = painter;
+  }
+
+  /**
+   * Discards the cached image, so the layer is painted again when it is next drawn.
+   */
+  public void invalidate() {
+    image = null;
+  }
+
+  /**
+   * Composites the layer into the given graphics, with its origin at the graphics' origin. The
+   * graphics must only be translated and scaled up, not flipped, rotated or sheared.
+   *
+   * @param win the graphics to draw into
+   */
+  public void draw(Graphics2D win) {
+
+    AffineTransform transform = win.getTransform();
+
+    if (image == null || config != win.getDeviceConfiguration()
+        || scaleX != transform.getScaleX() || scaleY != transform.getScaleY()) {
+      render(win.getDeviceConfiguration(), transform.getScaleX(), transform.getScaleY());
+    }
+
+    for (int[] run : runs) {
+
+      // Map the run from image pixels back into the layer's coordinates
+      double x = run[0] / scaleX, y = run[1] / scaleY;
+      double w = run[2] / scaleX, h = run[3] / scaleY;
+
+      win.drawImage(image, (int) Math.round(x), (int) Math.round(y),
+          (int) Math.round(x + w), (int) Math.round(y + h),
+          run[0], run[1], run[0] + run[2], run[1] + run[3], null);
+
+    }
+
+  }
+
+  private void render(GraphicsConfiguration config, double scaleX, double scaleY) {
+
+    this.config = config;
+    this.scaleX = scaleX;
+    this.scaleY = scaleY;
+
+    int pixelWidth = (int) Math.ceil(width * scaleX);
+    int pixelHeight = (int) Math.ceil(height * scaleY);
+
+    image = config != null
+        ? config.createCompatibleImage(pixelWidth, pixelHeight, Transparency.TRANSLUCENT)
+        : new BufferedImage(pixelWidth, pixelHeight, BufferedImage.TYPE_INT_ARGB);
+
+    Graphics2D g = image.createGraphics();
+    g.scale(scaleX, scaleY);
+    painter.accept(g);
+    g.dispose();
+
+    findRuns();
+
+  }
+
+  /**
+   * Finds the tiles of the image containing any painted pixels, merging neighbouring tiles in the
+   * same row into runs.
+   */
+  private void findRuns() {
+
+    runs.clear();
+
+    int pixelWidth = image.getWidth(), pixelHeight = image.getHeight();
+    int[] row = new int[pixelWidth * TILE_SIZE];
+
+    for (int y = 0; y < pixelHeight; y += TILE_SIZE) {
+
+      int tileHeight = Math.min(TILE_SIZE, pixelHeight - y);
+      image.getRGB(0, y, pixelWidth, tileHeight, row, 0, pixelWidth);
+
+      int runStart = -1;
+
+      for (int x = 0; x < pixelWidth; x += TILE_SIZE) {
+
+        int tileWidth = Math.min(TILE_SIZE, pixelWidth - x);
+
+        boolean painted = false;
+        for (int j = 0; j < tileHeight && !painted; j++) {
+          for (int i = x; i < x + tileWidth; i++) {
+            if (row[j * pixelWidth + i] >>> 24 != 0) {
+              painted = true;
+              break;
+            }
+          }
+        }
+
+        if (painted && runStart < 0) {
+          runStart = x;
+        } else if (!painted && runStart >= 0) {
+          runs.add(new int[]{runStart, y, x - runStart, tileHeight});
+          runStart = -1;
+        }
+
+      }
+
+      if (runStart >= 0) {
+        runs.add(new int[]{runStart, y, pixelWidth - runStart, tileHeight});
+      }
+
+    }
+
+  }
+
+}
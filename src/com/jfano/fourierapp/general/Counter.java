@@ -32,4 +32,13 @@ public class Counter {
     return val;
   }
 
+  /**
+   * Jumps straight to the given value, without running the tick action.
+   *
+   * @param val the new value, in [0, max)
+   */
+  public void setVal(int val) {
+    this.val = val;
+  }
+
 }
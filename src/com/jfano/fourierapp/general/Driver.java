@@ -1,26 +1,73 @@
 package com.jfano.fourierapp.general;
 
+import com.jfano.fourierapp.events.RenderFrameEvent;
+import com.jfano.fourierapp.events.UpdateBatchEvent;
 import java.awt.Canvas;
 import java.awt.Color;
+import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
+import java.awt.Toolkit;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.image.BufferStrategy;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Optional;
 import javax.swing.JFrame;
 
 public abstract class Driver extends Canvas implements Runnable, KeyListener {
 
-  private static final long MtoN = 1000000L, StoN = 1000L * MtoN;
+  /**
+   * What the driver does with the updates it missed after falling behind its UPS.
+   */
+  public enum CatchUpPolicy {
+
+    /**
+     * Perform every missed update, however far behind the driver is.
+     */
+    CATCH_UP,
+
+    /**
+     * Perform missed updates, unless an entire second's worth were missed, in which case they are
+     * all dropped. Otherwise the driver may never catch back up.
+     */
+    DROP_BACKLOG,
+
+    /**
+     * Perform at most one update at a time, dropping the rest. The simulation slows down rather
+     * than jumping ahead when the driver falls behind.
+     */
+    SKIP
+
+  }
+
+  private static final long StoN = 1000000000L;
+  // Toggles phase timing and its overlay
+  private static final int TIMINGS_KEY = KeyEvent.VK_F3;
   protected int width, height;
   protected JFrame frame;
   protected boolean[] keys;
   private int FPS, UPS;
-  private boolean exit = false, fullScreen = false;
+  private volatile boolean exit = false, redraw = true;
+  // Only written by the thread performing updates
+  private volatile long updatesPerformed;
+  private boolean fullScreen = false, showTitle, decoupled = false, skipUnchangedFrames = true;
+  private CatchUpPolicy catchUpPolicy = CatchUpPolicy.DROP_BACKLOG;
+  private String title;
+  private final PhaseTimer timers = new PhaseTimer();
+  // Also timed by OfflineRenderer
+  final PhaseTimer.Phase updatePhase = timers.phase("update"), renderPhase = timers.phase("render");
+  private final PhaseTimer.Phase presentPhase = timers.phase("present");
+  private Path timingsCsv = Paths.get("phase-timings.csv");
 
   /**
-   * Create the game driver and bind it to a JFrame
+   * Create the game driver. The driver's JFrame is created once the driver is started, so a driver
+   * can be constructed, updated and drawn without a display.
    *
    * @param width     width of the driver's JFrame
    * @param height    height of the driver's JFrame
@@ -34,15 +81,8 @@ public abstract class Driver extends Canvas implements Runnable, KeyListener {
     this.height = height;
     this.FPS = FPS;
     this.UPS = UPS;
-
-    this.frame = new JFrame();
-    frame.setTitle(title);
-    frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-    frame.setLocationRelativeTo(null);
-    frame.setResizable(false);
-    frame.add(this);
-    frame.setUndecorated(!showTitle);
-    frame.pack();
+    this.title = title;
+    this.showTitle = showTitle;
 
     this.addKeyListener(this);
 
@@ -94,6 +134,18 @@ public abstract class Driver extends Canvas implements Runnable, KeyListener {
 
     exit = false;
 
+    if (frame == null) {
+      frame = new JFrame();
+      frame.setTitle(title);
+      frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+      frame.setLocationRelativeTo(null);
+      frame.setResizable(false);
+      frame.add(this);
+      frame.setUndecorated(!showTitle);
+      frame.pack();
+      Runtime.getRuntime().addShutdownHook(new Thread(this::writeTimings, "timings"));
+    }
+
     if (fullScreen) {
       frame.setExtendedState(JFrame.MAXIMIZED_BOTH);
     } else {
@@ -106,6 +158,111 @@ public abstract class Driver extends Canvas implements Runnable, KeyListener {
     Thread driverThread = new Thread(this, "driver");
     driverThread.start();
 
+    if (decoupled) {
+      Thread simulationThread = new Thread(this::simulate, "simulation");
+      simulationThread.start();
+    }
+
+  }
+
+  /**
+   * Choose whether <code>update</code> runs on its own "simulation" thread, rather than between
+   * frames on the same thread as <code>draw</code>. This only takes effect when the driver is
+   * next started.
+   * <br><br>
+   * While decoupled, a slow <code>draw</code> no longer holds back updates. Subclasses are then
+   * responsible for handing state from <code>update</code> to <code>draw</code> safely, for
+   * example by publishing immutable snapshots through a <code>FrameHandoff</code>.
+   *
+   * @param decoupled true to run updates on their own thread
+   */
+  public void setDecoupledUpdates(boolean decoupled) {
+    this.decoupled = decoupled;
+  }
+
+  /**
+   * Choose what happens to updates missed after the driver falls behind its UPS. Defaults to
+   * <code>DROP_BACKLOG</code>. Should be set before the driver is started.
+   *
+   * @param catchUpPolicy the policy
+   */
+  public void setCatchUpPolicy(CatchUpPolicy catchUpPolicy) {
+    this.catchUpPolicy = catchUpPolicy;
+  }
+
+  /**
+   * Choose whether frames are skipped while no update has happened since the last one was drawn.
+   * Enabled by default. Drivers whose drawing changes between updates should either disable this
+   * or call <code>requestRedraw</code>.
+   *
+   * @param skipUnchangedFrames true to skip drawing frames which would be unchanged
+   */
+  public void setSkipUnchangedFrames(boolean skipUnchangedFrames) {
+    this.skipUnchangedFrames = skipUnchangedFrames;
+  }
+
+  /**
+   * Choose where phase timings are written as CSV when the program exits, if any were recorded.
+   * Defaults to <code>phase-timings.csv</code> in the working directory.
+   *
+   * @param timingsCsv the file to write, or null to not write timings
+   */
+  public void setTimingsCsv(Path timingsCsv) {
+    this.timingsCsv = timingsCsv;
+  }
+
+  /**
+   * Gets the timer for phases of each frame. Updating, rendering and presenting frames are timed
+   * by the driver, and subclasses may add phases of their own. Timing is toggled with F3 while the
+   * driver is running, which also shows the timings over each frame.
+   *
+   * @return the phase timer
+   */
+  public PhaseTimer getPhaseTimer() {
+    return timers;
+  }
+
+  /**
+   * Draws the next frame, even if no update has happened since the last one. Safe to call from any
+   * thread.
+   */
+  public void requestRedraw() {
+    redraw = true;
+  }
+
+  /**
+   * @return target (maximum) frames drawn per second
+   */
+  public int getFPS() {
+    return FPS;
+  }
+
+  /**
+   * @return target (maximum) updates per second
+   */
+  public int getUPS() {
+    return UPS;
+  }
+
+  /**
+   * @return true if <code>update</code> runs on its own thread
+   */
+  public boolean isDecoupled() {
+    return decoupled;
+  }
+
+  /**
+   * @return the number of updates performed since the driver was started
+   */
+  public long getUpdatesPerformed() {
+    return updatesPerformed;
+  }
+
+  /**
+   * @return true once the driver has been asked to exit
+   */
+  protected boolean isExiting() {
+    return exit;
   }
 
   /**
@@ -129,13 +286,63 @@ public abstract class Driver extends Canvas implements Runnable, KeyListener {
           this.createBufferStrategy(3);
           return this.getBufferStrategy();
         });
+    RenderFrameEvent event = new RenderFrameEvent();
+    event.begin();
+
     Graphics2D g = (Graphics2D) buffs.getDrawGraphics();
 
+    long start = renderPhase.start();
+    renderFrame(g);
+    renderPhase.stop(start);
+
+    if (timers.isEnabled()) {
+      timers.drawOverlay(g, this.getWidth() - 10, this.getHeight() - 10);
+    }
+
+    g.dispose();
+
+    start = presentPhase.start();
+    buffs.show();
+
+    // Push the frame to the display now, rather than whenever the window system next flushes,
+    // so frames reach the screen at the pace they were drawn
+    Toolkit.getDefaultToolkit().sync();
+    presentPhase.stop(start);
+
+    boolean contentsLost = buffs.contentsLost();
+    if (contentsLost) {
+      redraw = true;
+    }
+
+    event.end();
+    if (event.shouldCommit()) {
+      event.updates = updatesPerformed;
+      event.contentsLost = contentsLost;
+      event.commit();
+    }
+
+  }
+
+  /**
+   * Called by AWT when the window needs repainting, such as after being uncovered. The next frame
+   * is drawn even if nothing has changed.
+   */
+  @Override
+  public void paint(Graphics g) {
+    redraw = true;
+  }
+
+  /**
+   * Clear the given graphics to the driver's background and draw the driver into it. Shared by the
+   * windowed and offline renderers, so both produce identical frames.
+   *
+   * @param g the graphics to draw into
+   */
+  void renderFrame(Graphics2D g) {
+
     g.setColor(Color.WHITE);
     g.fill(new Rectangle(0, 0, this.width, this.height));
     draw(g);
-    g.dispose();
-    buffs.show();
 
   }
 
@@ -147,46 +354,128 @@ public abstract class Driver extends Canvas implements Runnable, KeyListener {
     // Calculate update/draw rate in terms of nanoseconds
     final long updateRate = StoN / UPS, drawRate = StoN / FPS;
 
-    long processingStartTime, lastUpdateTime, updateDiff;
-    lastUpdateTime = System.nanoTime();
+    Pacer pacer = new Pacer();
+    long lastUpdateTime = System.nanoTime(), nextFrameTime = lastUpdateTime;
+    long updatesDrawn = -1;
+    boolean timingsKeyHeld = false;
 
     while (!exit) {
 
-      long curTime = System.nanoTime();
-      processingStartTime = curTime;
-      updateDiff = curTime - lastUpdateTime;
+      if (keys[TIMINGS_KEY] && !timingsKeyHeld) {
+        timers.setEnabled(!timers.isEnabled());
+        redraw = true;
+      }
+      timingsKeyHeld = keys[TIMINGS_KEY];
+
+      // When decoupled, updates are performed by the simulation thread instead
+      if (!decoupled) {
+        lastUpdateTime = catchUp(lastUpdateTime, updateRate);
+      }
 
-      // If an entire second worth of updates are missed, just drop them
-      // The driver will never catch back up otherwise
-      if (updateDiff > StoN) {
-        lastUpdateTime = curTime;
-        updateDiff = curTime - lastUpdateTime;
+      long updates = updatesPerformed;
+      if (!skipUnchangedFrames || updates != updatesDrawn || redraw) {
+        redraw = false;
+        updatesDrawn = updates;
+        render();
       }
 
-      // Calculate the number of updates that need to occur to meet
-      // the UPS rate and perform those updates.
-      int updatesNeeded = (int) (updateDiff / updateRate);
-      for (int i = 0; i < updatesNeeded; ++i) {
-        update();
-        lastUpdateTime += updateRate;
+      // Frames are due at fixed intervals, so time spent drawing does not accumulate as drift.
+      // After falling more than a frame behind, start over from now rather than rushing frames.
+      nextFrameTime += drawRate;
+      long now = System.nanoTime();
+      if (now - nextFrameTime > drawRate) {
+        nextFrameTime = now;
       }
 
-      render();
+      pacer.waitUntil(nextFrameTime);
+
+    }
+
+    frame.setVisible(false);
 
-      long processingTime = System.nanoTime() - processingStartTime;
+  }
 
-      // If this frame was completed before the draw rate
-      if (processingTime < drawRate) {
-        try {
-          Thread.sleep((int) (drawRate - processingTime) / MtoN);
-        } catch (InterruptedException e) {
-          System.err.format("Thread Interrupted: %s", e.getMessage());
+  /**
+   * Performs updates at the UPS rate, independently of rendering. Run by the simulation thread
+   * when updates are decoupled.
+   */
+  private void simulate() {
+
+    final long updateRate = StoN / UPS;
+
+    Pacer pacer = new Pacer();
+    long lastUpdateTime = System.nanoTime();
+
+    while (!exit) {
+
+      lastUpdateTime = catchUp(lastUpdateTime, updateRate);
+
+      // Wait until the next update is due
+      pacer.waitUntil(lastUpdateTime + updateRate);
+
+    }
+
+  }
+
+  /**
+   * Performs every update that has come due since the last one.
+   *
+   * @param lastUpdateTime the time the last update was due, in nanoseconds
+   * @param updateRate     the time between updates, in nanoseconds
+   * @return the time the last update performed was due
+   */
+  private long catchUp(long lastUpdateTime, long updateRate) {
+
+    UpdateBatchEvent event = new UpdateBatchEvent();
+    event.begin();
+
+    long curTime = System.nanoTime();
+    long updateDiff = curTime - lastUpdateTime;
+    long dropped = 0;
+
+    switch (catchUpPolicy) {
+      case DROP_BACKLOG:
+        // If an entire second worth of updates are missed, just drop them
+        // The driver will never catch back up otherwise
+        if (updateDiff > StoN) {
+          dropped = updateDiff / updateRate;
+          lastUpdateTime = curTime;
+          updateDiff = 0;
         }
-      }
+        break;
+      case SKIP:
+        // Keep only the most recent update that came due
+        if (updateDiff >= 2 * updateRate) {
+          dropped = updateDiff / updateRate - 1;
+          lastUpdateTime = curTime - updateRate;
+          updateDiff = updateRate;
+        }
+        break;
+      case CATCH_UP:
+      default:
+        break;
+    }
 
+    // Calculate the number of updates that need to occur to meet
+    // the UPS rate and perform those updates.
+    int updatesNeeded = (int) (updateDiff / updateRate);
+    for (int i = 0; i < updatesNeeded; ++i) {
+      long start = updatePhase.start();
+      update();
+      updatePhase.stop(start);
+      updatesPerformed++;
+      lastUpdateTime += updateRate;
     }
 
-    frame.setVisible(false);
+    // Most checks find no update due, which are not worth recording
+    event.end();
+    if ((updatesNeeded > 0 || dropped > 0) && event.shouldCommit()) {
+      event.updates = updatesNeeded;
+      event.dropped = dropped;
+      event.commit();
+    }
+
+    return lastUpdateTime;
 
   }
 
@@ -194,6 +483,24 @@ public abstract class Driver extends Canvas implements Runnable, KeyListener {
     exit = true;
   }
 
+  /**
+   * Writes the phase timings to the CSV file, if any were recorded. Called when the program exits
+   * once the driver has been started.
+   */
+  protected void writeTimings() {
+
+    if (timingsCsv == null || !timers.hasRecorded()) {
+      return;
+    }
+
+    try (Writer out = Files.newBufferedWriter(timingsCsv, StandardCharsets.UTF_8)) {
+      timers.writeCsv(out);
+    } catch (IOException e) {
+      System.err.format("Failed to write phase timings to %s: %s%n", timingsCsv, e.getMessage());
+    }
+
+  }
+
   @Override
   public void keyTyped(KeyEvent ev) {
     // STUB
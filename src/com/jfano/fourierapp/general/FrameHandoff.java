@@ -0,0 +1,139 @@
+package com.jfano.fourierapp.general;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free queue for handing frames from exactly one producer thread to exactly one
+ * consumer thread.
+ * <br><br>
+ * Frames are handed off in order and none are dropped; <code>offer</code> simply fails while the
+ * queue is full, or parks the producer for a bounded time until the consumer makes room. Anything
+ * the producer wrote before offering a frame is visible to the consumer once it polls that frame,
+ * so frames can be built without locks as long as they are not modified after being offered.
+ *
+ * @param <T> the type of frame handed off
+ */
+public final class FrameHandoff<T> {
+
+  private final AtomicReferenceArray<T> slots;
+  private final int mask;
+  // Total number of frames ever polled and offered. Only the consumer writes head, and only the
+  // producer writes tail.
+  private final AtomicLong head = new AtomicLong(), tail = new AtomicLong();
+  // The producer, while it is parked waiting for room
+  private volatile Thread waitingProducer;
+
+  /**
+   * Creates an empty handoff.
+   *
+   * @param capacity the maximum number of frames waiting to be consumed. Rounded up to a power of
+   *                 two
+   */
+  public FrameHandoff(int capacity) {
+
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be at least 1, got " + capacity);
+    }
+
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+
+    slots = new AtomicReferenceArray<>(size);
+    mask = size - 1;
+
+  }
+
+  /**
+   * Hands a frame to the consumer. Must only be called from the producer thread.
+   *
+   * @param frame the frame
+   * @return true if the frame was queued, false if the queue is full
+   */
+  public boolean offer(T frame) {
+
+    long t = tail.get();
+
+    if (t - head.get() == slots.length()) {
+      return false;
+    }
+
+    // Release the frame before publishing the new tail
+    slots.lazySet((int) (t & mask), frame);
+    tail.lazySet(t + 1);
+
+    return true;
+
+  }
+
+  /**
+   * Hands a frame to the consumer, parking while the queue is full until the consumer makes room or
+   * the timeout passes. Must only be called from the producer thread.
+   *
+   * @param frame   the frame
+   * @param timeout how long to wait for room
+   * @param unit    the unit of the timeout
+   * @return true if the frame was queued, false if the queue was still full once the timeout passed
+   * @throws InterruptedException if the thread was interrupted while waiting
+   */
+  public boolean offer(T frame, long timeout, TimeUnit unit) throws InterruptedException {
+
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+    while (!offer(frame)) {
+
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return false;
+      }
+
+      // Announce the wait before checking for room again, so a poll in between still unparks us
+      waitingProducer = Thread.currentThread();
+      if (tail.get() - head.get() == slots.length()) {
+        LockSupport.parkNanos(this, remaining);
+      }
+      waitingProducer = null;
+
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+
+    }
+
+    return true;
+
+  }
+
+  /**
+   * Takes the oldest frame handed off. Must only be called from the consumer thread.
+   *
+   * @return the frame, or null if no frames are waiting
+   */
+  public T poll() {
+
+    long h = head.get();
+
+    if (h == tail.get()) {
+      return null;
+    }
+
+    int slot = (int) (h & mask);
+    T frame = slots.get(slot);
+    slots.lazySet(slot, null);
+    // A full write, so it cannot be reordered after reading whether the producer is waiting
+    head.set(h + 1);
+
+    Thread producer = waitingProducer;
+    if (producer != null) {
+      LockSupport.unpark(producer);
+    }
+
+    return frame;
+
+  }
+
+}
@@ -0,0 +1,157 @@
+package com.jfano.fourierapp.general;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.Rectangle2D;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Caches the layout of text which is drawn or measured repeatedly, so it is only laid out once.
+ * <br><br>
+ * Text is laid out into a <code>GlyphVector</code> for each font, string and
+ * <code>FontRenderContext</code>, along with its visual bounds. Measuring cached text is far
+ * cheaper than <code>TextTools</code>, which lays the text out again every call. The least recently
+ * used layouts are evicted once the cache is full.
+ * <br><br>
+ * Not thread safe. Give each thread that draws its own cache.
+ */
+public final class GlyphCache {
+
+  private final Map<Key, Layout> layouts;
+
+  /**
+   * Creates an empty cache.
+   *
+   * @param capacity the maximum number of layouts kept
+   */
+  public GlyphCache(int capacity) {
+
+    layouts = new LinkedHashMap<Key, Layout>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Layout> eldest) {
+        return size() > capacity;
+      }
+    };
+
+  }
+
+  /**
+   * Gets the layout of a string.
+   *
+   * @param frc  the context the text will be drawn in
+   * @param font the font
+   * @param text the string
+   * @return the cached <code>GlyphVector</code>. It must not be modified
+   */
+  public GlyphVector getGlyphVector(FontRenderContext frc, Font font, String text) {
+    return layout(frc, font, text).glyphs;
+  }
+
+  /**
+   * Gets the width of a string, equivalent to <code>TextTools.getTextWidth</code>.
+   *
+   * @param frc  the context the text will be drawn in
+   * @param font the font
+   * @param text the string
+   * @return the width of the string's visual bounds, rounded down
+   */
+  public int getTextWidth(FontRenderContext frc, Font font, String text) {
+    return (int) layout(frc, font, text).bounds.getWidth();
+  }
+
+  /**
+   * Gets the height of a string, equivalent to <code>TextTools.getTextHeight</code>.
+   *
+   * @param frc  the context the text will be drawn in
+   * @param font the font
+   * @param text the string
+   * @return the height of the string's visual bounds, rounded down
+   */
+  public int getTextHeight(FontRenderContext frc, Font font, String text) {
+    return (int) layout(frc, font, text).bounds.getHeight();
+  }
+
+  /**
+   * Draws a string with the given font in the current color, like <code>drawString</code>.
+   *
+   * @param win  the graphics to draw into
+   * @param font the font
+   * @param text the string
+   * @param x    the x coordinate of the string's baseline
+   * @param y    the y coordinate of the string's baseline
+   */
+  public void drawString(Graphics2D win, Font font, String text, float x, float y) {
+    win.drawGlyphVector(getGlyphVector(win.getFontRenderContext(), font, text), x, y);
+  }
+
+  /**
+   * Discards every cached layout.
+   */
+  public void clear() {
+    layouts.clear();
+  }
+
+  private Layout layout(FontRenderContext frc, Font font, String text) {
+
+    Key key = new Key(frc, font, text);
+    Layout layout = layouts.get(key);
+
+    if (layout == null) {
+      GlyphVector glyphs = font.createGlyphVector(frc, text);
+      layout = new Layout(glyphs, glyphs.getVisualBounds());
+      layouts.put(key, layout);
+    }
+
+    return layout;
+
+  }
+
+  private static final class Key {
+
+    private final FontRenderContext frc;
+    private final Font font;
+    private final String text;
+
+    private Key(FontRenderContext frc, Font font, String text) {
+      this.frc = frc;
+      this.font = font;
+      this.text = text;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+      if (!(o instanceof Key)) {
+        return false;
+      }
+
+      Key other = (Key) o;
+
+      return text.equals(other.text) && font.equals(other.font) && frc.equals(other.frc);
+
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(frc, font, text);
+    }
+
+  }
+
+  private static final class Layout {
+
+    private final GlyphVector glyphs;
+    private final Rectangle2D bounds;
+
+    private Layout(GlyphVector glyphs, Rectangle2D bounds) {
+      this.glyphs = glyphs;
+      this.bounds = bounds;
+    }
+
+  }
+
+}
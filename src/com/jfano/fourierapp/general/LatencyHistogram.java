@@ -0,0 +1,121 @@
+package com.jfano.fourierapp.general;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts durations in buckets whose width grows with the duration, in the style of an HDR
+ * histogram, so percentiles can be read with a fixed relative precision across any range.
+ * <br><br>
+ * Durations below 64ns are counted exactly. Above that, each power of two is split into 32
+ * buckets, so a percentile is never reported more than about 3% above the true value. Recording
+ * is a few atomic increments and never allocates, and may happen from any thread.
+ */
+public final class LatencyHistogram {
+
+  // Each power of two is split into 2^(SUB_BITS - 1) buckets
+  private static final int SUB_BITS = 6, HALF = 1 << (SUB_BITS - 1);
+  private static final int BUCKETS = (63 - SUB_BITS + 3) * HALF;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong(), total = new AtomicLong(),
+      max = new AtomicLong();
+
+  /**
+   * Records a duration.
+   *
+   * @param nanos the duration, in nanoseconds. Negative durations are counted as 0
+   */
+  public void record(long nanos) {
+
+    nanos = Math.max(0, nanos);
+
+    counts.incrementAndGet(bucketOf(nanos));
+    count.incrementAndGet();
+    total.addAndGet(nanos);
+    max.accumulateAndGet(nanos, Math::max);
+
+  }
+
+  /**
+   * @return the number of durations recorded
+   */
+  public long getCount() {
+    return count.get();
+  }
+
+  /**
+   * @return the longest duration recorded, in nanoseconds
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * @return the mean duration recorded, in nanoseconds, or 0 if none were
+   */
+  public double getMean() {
+    long n = count.get();
+    return n == 0 ? 0 : total.get() / (double) n;
+  }
+
+  /**
+   * Gets the duration which the given percentage of recorded durations are no longer than.
+   *
+   * @param percentile the percentage, from 0 to 100
+   * @return the duration, in nanoseconds, or 0 if none were recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+
+    long n = count.get();
+    if (n == 0) {
+      return 0;
+    }
+
+    long target = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+    long seen = 0;
+
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      seen += counts.get(bucket);
+      if (seen >= target) {
+        return Math.min(highestIn(bucket), getMax());
+      }
+    }
+
+    return getMax();
+
+  }
+
+  /**
+   * Discards every recorded duration. Durations recorded concurrently may be partly discarded.
+   */
+  public void reset() {
+
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      counts.set(bucket, 0);
+    }
+    count.set(0);
+    total.set(0);
+    max.set(0);
+
+  }
+
+  private static int bucketOf(long nanos) {
+
+    // Shift the value until it has SUB_BITS significant bits, which then index the bucket
+    int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(nanos) - SUB_BITS);
+
+    return (int) (shift * HALF + (nanos >>> shift));
+
+  }
+
+  private static long highestIn(int bucket) {
+
+    int shift = Math.max(0, bucket / HALF - 1);
+    long mantissa = bucket - shift * HALF;
+
+    return ((mantissa + 1) << shift) - 1;
+
+  }
+
+}
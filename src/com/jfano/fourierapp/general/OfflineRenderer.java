@@ -0,0 +1,204 @@
+package com.jfano.fourierapp.general;
+
+import com.jfano.fourierapp.events.RenderFrameEvent;
+import com.jfano.fourierapp.events.UpdateBatchEvent;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.imageio.ImageIO;
+
+/**
+ * Renders a <code>Driver</code> frame by frame into an offscreen image, without a JFrame or a
+ * display.
+ * <br><br>
+ * Each frame performs the updates that would have come due at the driver's UPS and FPS rates, then
+ * draws the driver exactly as it would be drawn on screen. There is no frame pacing, so frames are
+ * produced as fast as the CPU allows. Updates and draws both happen on the calling thread, whether
+ * or not the driver is set to decouple its updates.
+ */
+public class OfflineRenderer {
+
+  private final Driver driver;
+  private final BufferedImage canvas;
+  private int framesRendered;
+  private long updatesPerformed;
+
+  /**
+   * Creates a renderer for the given driver, starting from its current state.
+   *
+   * @param driver the driver to render. It should not also be started
+   */
+  public OfflineRenderer(Driver driver) {
+
+    this.driver = driver;
+    this.canvas = new BufferedImage(driver.width, driver.height, BufferedImage.TYPE_INT_RGB);
+
+    driver.setDecoupledUpdates(false);
+
+  }
+
+  /**
+   * Creates a renderer for the given driver, starting from a later frame. The driver is seeked to
+   * the state it would be in when drawing that frame, having started from its initial state.
+   *
+   * @param driver     the driver to render. It should not also be started
+   * @param firstFrame the first frame to render
+   * @param <D>        the type of driver
+   */
+  public <D extends Driver & Seekable> OfflineRenderer(D driver, int firstFrame) {
+
+    this(driver);
+
+    framesRendered = firstFrame;
+    updatesPerformed = updatesBefore(firstFrame);
+    driver.seek(updatesPerformed);
+
+  }
+
+  public int getWidth() {
+    return canvas.getWidth();
+  }
+
+  public int getHeight() {
+    return canvas.getHeight();
+  }
+
+  /**
+   * Updates and draws the next frame.
+   *
+   * @return the frame. The image is reused, so it is only valid until the next call
+   */
+  public BufferedImage renderFrame() {
+
+    UpdateBatchEvent batch = new UpdateBatchEvent();
+    batch.begin();
+
+    long due = updatesBefore(framesRendered), batchSize = due - updatesPerformed;
+    for (; updatesPerformed < due; updatesPerformed++) {
+      long start = driver.updatePhase.start();
+      driver.update();
+      driver.updatePhase.stop(start);
+    }
+
+    batch.end();
+    if (batchSize > 0 && batch.shouldCommit()) {
+      batch.updates = (int) batchSize;
+      batch.commit();
+    }
+
+    RenderFrameEvent render = new RenderFrameEvent();
+    render.begin();
+
+    Graphics2D g = canvas.createGraphics();
+    long start = driver.renderPhase.start();
+    driver.renderFrame(g);
+    driver.renderPhase.stop(start);
+    g.dispose();
+
+    render.end();
+    if (render.shouldCommit()) {
+      render.updates = updatesPerformed;
+      render.commit();
+    }
+
+    framesRendered++;
+
+    return canvas;
+
+  }
+
+  /**
+   * The number of updates performed before a frame is drawn. Frames are drawn at the driver's FPS
+   * and updates at its UPS, with the first frame showing the driver's initial state.
+   *
+   * @param frame the frame
+   * @return the number of updates
+   */
+  public long updatesBefore(int frame) {
+    return frame * (long) driver.getUPS() / driver.getFPS();
+  }
+
+  /**
+   * Renders frames as numbered PNG images, named <code>frame_00000.png</code> onwards.
+   *
+   * @param directory the directory to write into. Created if it does not exist
+   * @param frames    the number of frames to render
+   * @throws IOException if a frame could not be written
+   */
+  public void writePngs(Path directory, int frames) throws IOException {
+
+    Files.createDirectories(directory);
+
+    for (int i = 0; i < frames; i++) {
+      ImageIO.write(renderFrame(), "png", pngPath(directory, i).toFile());
+    }
+
+  }
+
+  /**
+   * Renders frames as raw 8-bit RGBA pixels, frame after frame with no header or padding. The
+   * stream can be read by tools such as ffmpeg with <code>-f rawvideo -pix_fmt rgba -s
+   * WIDTHxHEIGHT</code>.
+   *
+   * @param out    the stream to write into, such as a file or standard output. It is flushed but
+   *               not closed
+   * @param frames the number of frames to render
+   * @throws IOException if a frame could not be written
+   */
+  public void writeRgba(OutputStream out, int frames) throws IOException {
+
+    OutputStream buffered = new BufferedOutputStream(out, 1 << 16);
+    byte[] rgba = new byte[getWidth() * getHeight() * 4];
+
+    for (int i = 0; i < frames; i++) {
+      toRgba(renderFrame(), rgba);
+      buffered.write(rgba);
+    }
+
+    buffered.flush();
+
+  }
+
+  static Path pngPath(Path directory, int frame) {
+    return directory.resolve(String.format("frame_%05d.png", frame));
+  }
+
+  /**
+   * Encodes a rendered frame as a PNG image.
+   */
+  static byte[] toPng(BufferedImage frame) throws IOException {
+
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    ImageIO.write(frame, "png", png);
+
+    return png.toByteArray();
+
+  }
+
+  /**
+   * Converts a rendered frame into 8-bit RGBA pixels, row by row.
+   *
+   * @param frame a frame returned by <code>renderFrame</code>
+   * @param rgba  receives the pixels. Must hold 4 bytes per pixel
+   */
+  static void toRgba(BufferedImage frame, byte[] rgba) {
+
+    int[] pixels = ((DataBufferInt) frame.getRaster().getDataBuffer()).getData();
+
+    for (int p = 0, i = 0; p < pixels.length; p++, i += 4) {
+      int rgb = pixels[p];
+      rgba[i] = (byte) (rgb >> 16);
+      rgba[i + 1] = (byte) (rgb >> 8);
+      rgba[i + 2] = (byte) rgb;
+      rgba[i + 3] = (byte) 0xFF;
+    }
+
+  }
+
+}
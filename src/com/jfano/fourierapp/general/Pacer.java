@@ -0,0 +1,62 @@
+package com.jfano.fourierapp.general;
+
+/**
+ * Waits until deadlines on the <code>System.nanoTime</code> clock, far more precisely than
+ * <code>Thread.sleep</code> alone.
+ * <br><br>
+ * <code>Thread.sleep</code> often wakes a millisecond or more late, so the pacer only sleeps until
+ * shortly before a deadline, then yields until the deadline arrives. The margin left for yielding
+ * follows how late recent sleeps woke up: it grows at once when a sleep overshoots, and shrinks
+ * slowly while sleeps are punctual, so as little time as possible is spent spinning.
+ * <br><br>
+ * Not thread safe. Give each thread that waits its own pacer.
+ */
+public final class Pacer {
+
+  private static final long MIN_MARGIN = 100_000L, MAX_MARGIN = 4_000_000L;
+  private static final long MtoN = 1_000_000L;
+
+  // How long before a deadline to stop sleeping, in nanoseconds
+  private long margin = 1_000_000L;
+
+  /**
+   * Waits until the given time. Returns immediately if it has already passed, or if the thread is
+   * interrupted.
+   *
+   * @param deadline the time to wait until, as given by <code>System.nanoTime</code>
+   */
+  public void waitUntil(long deadline) {
+
+    long sleep = deadline - System.nanoTime() - margin;
+
+    if (sleep > 0) {
+
+      long sleepStart = System.nanoTime();
+
+      try {
+        Thread.sleep(sleep / MtoN, (int) (sleep % MtoN));
+      } catch (InterruptedException e) {
+        System.err.format("Thread Interrupted: %s", e.getMessage());
+        return;
+      }
+
+      long overshoot = System.nanoTime() - sleepStart - sleep;
+      margin = Math.max(MIN_MARGIN,
+          Math.min(MAX_MARGIN, Math.max(overshoot, margin - margin / 16)));
+
+    }
+
+    while (System.nanoTime() < deadline) {
+      Thread.yield();
+    }
+
+  }
+
+  /**
+   * @return how long before a deadline the pacer currently stops sleeping, in nanoseconds
+   */
+  public long getMargin() {
+    return margin;
+  }
+
+}
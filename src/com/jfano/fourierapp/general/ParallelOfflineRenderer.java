@@ -0,0 +1,222 @@
+package com.jfano.fourierapp.general;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders frames of a <code>Seekable</code> driver on a pool of worker threads, producing the same
+ * output as <code>OfflineRenderer</code>.
+ * <br><br>
+ * Each worker owns its own copy of the driver. Frames are split into contiguous chunks which
+ * workers claim in order. A worker seeks its driver to the start of each chunk, then renders the
+ * chunk sequentially. Encoded frames are handed to a single writer on the calling thread, which
+ * writes them in order. Workers may only run a bounded number of frames ahead of the writer, so
+ * memory use does not grow with the length of the animation.
+ *
+ * @param <D> the type of driver
+ */
+public class ParallelOfflineRenderer<D extends Driver & Seekable> {
+
+  private final Callable<D> factory;
+  private final int threads;
+  private int chunkSize = 32;
+
+  // Frames encoded but not yet written, and the progress of the writer. Guarded by this.
+  private byte[][] pending;
+  private int written;
+  private Exception failure;
+
+  /**
+   * Creates a parallel renderer.
+   *
+   * @param factory creates a driver in its initial state. Called once per worker, possibly
+   *                concurrently
+   * @param threads the number of worker threads
+   */
+  public ParallelOfflineRenderer(Callable<D> factory, int threads) {
+
+    if (threads < 1) {
+      throw new IllegalArgumentException("Thread count must be at least 1, got " + threads);
+    }
+
+    this.factory = factory;
+    this.threads = threads;
+
+  }
+
+  /**
+   * Sets the number of consecutive frames rendered by a worker between seeks. Larger chunks seek
+   * less often, but let workers run further ahead of the writer, holding more encoded frames in
+   * memory. Defaults to 32.
+   *
+   * @param chunkSize the number of frames per chunk
+   */
+  public void setChunkSize(int chunkSize) {
+
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("Chunk size must be at least 1, got " + chunkSize);
+    }
+
+    this.chunkSize = chunkSize;
+
+  }
+
+  /**
+   * Renders frames as numbered PNG images, named as by <code>OfflineRenderer</code>.
+   *
+   * @param directory the directory to write into. Created if it does not exist
+   * @param frames    the number of frames to render
+   * @throws IOException if a frame could not be rendered or written
+   */
+  public void writePngs(Path directory, int frames) throws IOException {
+
+    Files.createDirectories(directory);
+
+    render(frames, (renderer, frame) -> OfflineRenderer.toPng(renderer.renderFrame()),
+        (frame, png) -> Files.write(OfflineRenderer.pngPath(directory, frame), png));
+
+  }
+
+  /**
+   * Renders frames as raw 8-bit RGBA pixels, laid out as by <code>OfflineRenderer</code>.
+   *
+   * @param out    the stream to write into. It is flushed but not closed
+   * @param frames the number of frames to render
+   * @throws IOException if a frame could not be rendered or written
+   */
+  public void writeRgba(OutputStream out, int frames) throws IOException {
+
+    OutputStream buffered = new BufferedOutputStream(out, 1 << 16);
+
+    render(frames, (renderer, frame) -> {
+      byte[] rgba = new byte[renderer.getWidth() * renderer.getHeight() * 4];
+      OfflineRenderer.toRgba(renderer.renderFrame(), rgba);
+      return rgba;
+    }, (frame, rgba) -> buffered.write(rgba));
+
+    buffered.flush();
+
+  }
+
+  private void render(int frames, FrameEncoder encoder, FrameWriter writer) throws IOException {
+
+    // Enough frames for every worker to render a chunk, plus one more so the worker on the chunk
+    // after them does not have to wait. Raw frames are large, so this is kept tight.
+    final int window = (threads + 1) * chunkSize;
+
+    synchronized (this) {
+      pending = new byte[frames][];
+      written = 0;
+      failure = null;
+    }
+
+    AtomicInteger nextChunk = new AtomicInteger();
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+    for (int t = 0; t < threads; t++) {
+      pool.execute(() -> {
+
+        try {
+
+          D driver = factory.call();
+
+          for (int start = nextChunk.getAndIncrement() * chunkSize; start < frames;
+              start = nextChunk.getAndIncrement() * chunkSize) {
+
+            OfflineRenderer renderer = new OfflineRenderer(driver, start);
+
+            for (int frame = start; frame < Math.min(start + chunkSize, frames); frame++) {
+
+              synchronized (this) {
+                while (frame >= written + window && failure == null) {
+                  wait();
+                }
+                if (failure != null) {
+                  return;
+                }
+              }
+
+              byte[] encoded = encoder.encode(renderer, frame);
+
+              synchronized (this) {
+                pending[frame] = encoded;
+                notifyAll();
+              }
+
+            }
+
+          }
+
+        } catch (Exception e) {
+          synchronized (this) {
+            if (failure == null) {
+              failure = e;
+            }
+            notifyAll();
+          }
+        }
+
+      });
+    }
+
+    try {
+
+      for (int frame = 0; frame < frames; frame++) {
+
+        byte[] encoded;
+
+        synchronized (this) {
+          while (pending[frame] == null && failure == null) {
+            wait();
+          }
+          if (failure != null) {
+            throw new IOException("Failed to render frame", failure);
+          }
+          encoded = pending[frame];
+          pending[frame] = null;
+          written = frame + 1;
+          notifyAll();
+        }
+
+        writer.write(frame, encoded);
+
+      }
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while rendering", e);
+    } catch (IOException e) {
+      synchronized (this) {
+        failure = e;
+        notifyAll();
+      }
+      throw e;
+    } finally {
+      pool.shutdownNow();
+    }
+
+  }
+
+  private interface FrameEncoder {
+
+    /**
+     * Renders the next frame of the given renderer and encodes it.
+     */
+    byte[] encode(OfflineRenderer renderer, int frame) throws IOException;
+
+  }
+
+  private interface FrameWriter {
+
+    void write(int frame, byte[] encoded) throws IOException;
+
+  }
+
+}
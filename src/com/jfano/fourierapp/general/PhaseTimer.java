@@ -0,0 +1,196 @@
+package com.jfano.fourierapp.general;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Times named phases of each frame, such as updating or rendering, into a histogram per phase.
+ * <br><br>
+ * Timing is off until enabled, and costs a single volatile read per phase while off, so phases can
+ * be left instrumented in the field. Phases may be timed from any thread.
+ * <br><br>
+ * Usage:
+ * <pre>
+ *   long start = phase.start();
+ *   doWork();
+ *   phase.stop(start);
+ * </pre>
+ */
+public final class PhaseTimer {
+
+  // Returned by start while timing is off, so the matching stop records nothing
+  private static final long OFF = Long.MIN_VALUE;
+  private static final Font OVERLAY_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 14);
+
+  private final List<Phase> phases = new CopyOnWriteArrayList<>();
+  private volatile boolean enabled;
+
+  /**
+   * Gets the phase with the given name, creating it if it does not exist yet.
+   *
+   * @param name the name of the phase
+   * @return the phase
+   */
+  public synchronized Phase phase(String name) {
+
+    for (Phase phase : phases) {
+      if (phase.name.equals(name)) {
+        return phase;
+      }
+    }
+
+    Phase phase = new Phase(name);
+    phases.add(phase);
+
+    return phase;
+
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Turns timing on or off. Durations already recorded are kept.
+   *
+   * @param enabled true to time phases
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * @return true if any phase has recorded a duration
+   */
+  public boolean hasRecorded() {
+
+    for (Phase phase : phases) {
+      if (phase.histogram.getCount() > 0) {
+        return true;
+      }
+    }
+
+    return false;
+
+  }
+
+  /**
+   * Discards every recorded duration.
+   */
+  public void reset() {
+    for (Phase phase : phases) {
+      phase.histogram.reset();
+    }
+  }
+
+  /**
+   * Draws a table of each phase's 50th and 99th percentile and maximum durations, in microseconds.
+   *
+   * @param win the graphics to draw into
+   * @param x   the x coordinate of the table's right edge
+   * @param y   the y coordinate of the table's bottom edge
+   */
+  public void drawOverlay(Graphics2D win, int x, int y) {
+
+    int lineHeight = OVERLAY_FONT.getSize() + 2;
+    int width = OVERLAY_FONT.getSize() * 31, height = lineHeight * (phases.size() + 1) + 8;
+
+    Composite restore = win.getComposite();
+    win.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.75f));
+    win.setColor(Color.BLACK);
+    win.fillRect(x - width, y - height, width, height);
+    win.setComposite(restore);
+
+    win.setColor(Color.WHITE);
+    win.setFont(OVERLAY_FONT);
+
+    int line = y - height + lineHeight + 2;
+    win.drawString(String.format("%-14s%10s%10s%10s", "phase (us)", "p50", "p99", "max"),
+        x - width + 6, line);
+
+    for (Phase phase : phases) {
+      line += lineHeight;
+      LatencyHistogram h = phase.histogram;
+      win.drawString(String.format("%-14.14s%10.1f%10.1f%10.1f", phase.name,
+          h.getValueAtPercentile(50) / 1e3, h.getValueAtPercentile(99) / 1e3, h.getMax() / 1e3),
+          x - width + 6, line);
+    }
+
+  }
+
+  /**
+   * Writes every phase's statistics as CSV, with a header row and durations in microseconds.
+   *
+   * @param out the writer to write into. It is flushed but not closed
+   * @throws IOException if the statistics could not be written
+   */
+  public void writeCsv(Writer out) throws IOException {
+
+    PrintWriter csv = new PrintWriter(out);
+    csv.println("phase,count,mean_us,p50_us,p90_us,p99_us,p99.9_us,max_us");
+
+    for (Phase phase : phases) {
+      LatencyHistogram h = phase.histogram;
+      csv.format("%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f%n", phase.name, h.getCount(),
+          h.getMean() / 1e3, h.getValueAtPercentile(50) / 1e3, h.getValueAtPercentile(90) / 1e3,
+          h.getValueAtPercentile(99) / 1e3, h.getValueAtPercentile(99.9) / 1e3, h.getMax() / 1e3);
+    }
+
+    csv.flush();
+    if (csv.checkError()) {
+      throw new IOException("Failed to write phase timings");
+    }
+
+  }
+
+  /**
+   * A named phase, whose durations are recorded into its own histogram.
+   */
+  public final class Phase {
+
+    private final String name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    private Phase(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public LatencyHistogram getHistogram() {
+      return histogram;
+    }
+
+    /**
+     * Starts timing the phase.
+     *
+     * @return the token to pass to <code>stop</code>
+     */
+    public long start() {
+      return enabled ? System.nanoTime() : OFF;
+    }
+
+    /**
+     * Stops timing the phase, recording how long it took since <code>start</code>.
+     *
+     * @param start the token returned by <code>start</code>
+     */
+    public void stop(long start) {
+      if (start != OFF) {
+        histogram.record(System.nanoTime() - start);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,18 @@
+package com.jfano.fourierapp.general;
+
+/**
+ * A <code>Driver</code> whose state after any number of updates can be restored directly, without
+ * performing every update in between. This lets independent copies of a driver render different
+ * parts of an animation at the same time.
+ */
+public interface Seekable {
+
+  /**
+   * Restores the state this driver would be in after performing the given number of updates from
+   * its initial state, discarding its current state.
+   *
+   * @param updates the number of updates
+   */
+  void seek(long updates);
+
+}
@@ -1,8 +1,8 @@
 package com.jfano.fourierapp.math;
 
-import com.jfano.fourierapp.math.functions.ComplexTimeFunction;
+import com.jfano.fourierapp.math.functions.PolynomialTimeFunction;
 
-public class CubicCurveTimeEquation implements ComplexTimeFunction {
+public class CubicCurveTimeEquation implements PolynomialTimeFunction {
 
   private Complex[] points;
 
@@ -46,4 +46,35 @@ public class CubicCurveTimeEquation implements ComplexTimeFunction {
 
   }
 
+  @Override
+  public void solveAtTime(double time, double[] out) {
+
+    out[0] = 0;
+    out[1] = 0;
+
+    for (int i = 0; i < points.length; i++) {
+      double multiplier = deriveMultiplier(i, time);
+      out[0] += points[i].getReal() * multiplier;
+      out[1] += points[i].getImaginary() * multiplier;
+    }
+
+  }
+
+  /**
+   * Expands the Bezier form into the power basis: P0 + 3 * (P1 - P0) * t + 3 * (P0 - 2 * P1 + P2)
+   * * t^2 + (P3 - 3 * P2 + 3 * P1 - P0) * t^3, where P0 through P3 are the points in order.
+   */
+  @Override
+  public Complex[] getPolynomialCoefficients() {
+
+    Complex p0 = points[0], p1 = points[1], p2 = points[2], p3 = points[3];
+
+    Complex linear = p1.getAdd(p0.getMult(-1)).getMult(3);
+    Complex quadratic = p0.getAdd(p1.getMult(-2)).getAdd(p2).getMult(3);
+    Complex cubic = p3.getAdd(p2.getMult(-3)).getAdd(p1.getMult(3)).getAdd(p0.getMult(-1));
+
+    return new Complex[]{p0.getMult(1), linear, quadratic, cubic};
+
+  }
+
 }
@@ -0,0 +1,175 @@
+package com.jfano.fourierapp.math;
+
+/**
+ * Computes <a href="https://en.wikipedia.org/wiki/Discrete_Fourier_transform">discrete Fourier
+ * transforms</a> of complex sequences stored as separate real and imaginary <code>double</code>
+ * arrays.
+ * <br><br>
+ * Power-of-two lengths are transformed with an iterative radix-2 Cooley-Tukey FFT. Every other
+ * length is handled with
+ * <a href="https://en.wikipedia.org/wiki/Chirp_Z-transform#Bluestein's_algorithm">Bluestein's
+ * algorithm</a>, which rewrites the transform as a convolution evaluated with radix-2 FFTs. Either
+ * way, a transform of length M costs O(M log M).
+ */
+public final class FastFourierTransform {
+
+  /**
+   * Performs an in-place forward transform, such that X[k] = Σ x[j] * e^(-2πi * j * k / M)
+   *
+   * @param real the real components of the sequence, replaced by those of the transform
+   * @param img  the imaginary components of the sequence, replaced by those of the transform
+   */
+  public static void transform(double[] real, double[] img) {
+
+    if (real.length != img.length) {
+      throw new IllegalArgumentException("Mismatched component lengths: "
+          + real.length + " and " + img.length);
+    }
+
+    int n = real.length;
+
+    if (n < 2) {
+      return;
+    }
+
+    if ((n & (n - 1)) == 0) {
+      radix2(real, img);
+    } else {
+      bluestein(real, img);
+    }
+
+  }
+
+  /**
+   * Performs an in-place, <b>unscaled</b> inverse transform, such that x[j] = Σ X[k] * e^(2πi * j *
+   * k / M). Divide the results by M to undo <code>transform</code>.
+   *
+   * @param real the real components of the transform, replaced by those of the sequence
+   * @param img  the imaginary components of the transform, replaced by those of the sequence
+   */
+  public static void inverseTransform(double[] real, double[] img) {
+
+    // conj(FFT(conj(X))) is the unscaled inverse of X
+    conjugate(img);
+    transform(real, img);
+    conjugate(img);
+
+  }
+
+  private static void conjugate(double[] img) {
+    for (int i = 0; i < img.length; i++) {
+      img[i] = -img[i];
+    }
+  }
+
+  /**
+   * Iterative radix-2 Cooley-Tukey transform. The length must be a power of two.
+   */
+  private static void radix2(double[] real, double[] img) {
+
+    int n = real.length;
+
+    // Bit-reversal permutation
+    for (int i = 1, j = 0; i < n; i++) {
+
+      int bit = n >> 1;
+      for (; (j & bit) != 0; bit >>= 1) {
+        j ^= bit;
+      }
+      j ^= bit;
+
+      if (i < j) {
+        double temp = real[i];
+        real[i] = real[j];
+        real[j] = temp;
+        temp = img[i];
+        img[i] = img[j];
+        img[j] = temp;
+      }
+
+    }
+
+    // Twiddle factors e^(-2πi * k / n) for k in [0, n / 2)
+    double[] cos = new double[n / 2], sin = new double[n / 2];
+    for (int k = 0; k < n / 2; k++) {
+      cos[k] = Math.cos(2 * Math.PI * k / n);
+      sin[k] = -Math.sin(2 * Math.PI * k / n);
+    }
+
+    // Butterflies
+    for (int size = 2; size <= n; size <<= 1) {
+
+      int half = size >> 1, stride = n / size;
+
+      for (int start = 0; start < n; start += size) {
+        for (int k = 0; k < half; k++) {
+
+          int even = start + k, odd = even + half;
+          double wr = cos[k * stride], wi = sin[k * stride];
+          double oddReal = real[odd] * wr - img[odd] * wi;
+          double oddImg = real[odd] * wi + img[odd] * wr;
+
+          real[odd] = real[even] - oddReal;
+          img[odd] = img[even] - oddImg;
+          real[even] += oddReal;
+          img[even] += oddImg;
+
+        }
+      }
+
+    }
+
+  }
+
+  /**
+   * Bluestein's chirp-z transform for arbitrary lengths.
+   */
+  private static void bluestein(double[] real, double[] img) {
+
+    int n = real.length;
+    int m = Integer.highestOneBit(2 * n - 1) << 1;
+
+    // Chirp w[k] = e^(-πi * k^2 / n). k^2 is reduced mod 2n first to keep the angle accurate.
+    double[] chirpReal = new double[n], chirpImg = new double[n];
+    for (int k = 0; k < n; k++) {
+      double angle = Math.PI * (int) ((long) k * k % (2L * n)) / n;
+      chirpReal[k] = Math.cos(angle);
+      chirpImg[k] = -Math.sin(angle);
+    }
+
+    // a[k] = x[k] * w[k], zero padded to m
+    double[] aReal = new double[m], aImg = new double[m];
+    for (int k = 0; k < n; k++) {
+      aReal[k] = real[k] * chirpReal[k] - img[k] * chirpImg[k];
+      aImg[k] = real[k] * chirpImg[k] + img[k] * chirpReal[k];
+    }
+
+    // b[k] = conj(w[|k|]), wrapped around so negative indices sit at the end of the array
+    double[] bReal = new double[m], bImg = new double[m];
+    bReal[0] = chirpReal[0];
+    bImg[0] = -chirpImg[0];
+    for (int k = 1; k < n; k++) {
+      bReal[k] = bReal[m - k] = chirpReal[k];
+      bImg[k] = bImg[m - k] = -chirpImg[k];
+    }
+
+    // Circular convolution of a and b
+    radix2(aReal, aImg);
+    radix2(bReal, bImg);
+    for (int k = 0; k < m; k++) {
+      double r = aReal[k] * bReal[k] - aImg[k] * bImg[k];
+      aImg[k] = aReal[k] * bImg[k] + aImg[k] * bReal[k];
+      aReal[k] = r;
+    }
+    inverseTransform(aReal, aImg);
+
+    // X[k] = w[k] * conv[k] / m
+    for (int k = 0; k < n; k++) {
+      double r = aReal[k] / m, i = aImg[k] / m;
+      real[k] = r * chirpReal[k] - i * chirpImg[k];
+      img[k] = r * chirpImg[k] + i * chirpReal[k];
+    }
+
+  }
+
+}
@@ -1,13 +1,13 @@
 package com.jfano.fourierapp.math;
 
-import com.jfano.fourierapp.math.functions.ComplexTimeFunction;
+import com.jfano.fourierapp.math.functions.PolynomialTimeFunction;
 
 /**
  * Creates an equation that traces out the given line with domain [0, 1].
  *
  * @author Jacob Fano
  */
-public class LineTimeEquation implements ComplexTimeFunction {
+public class LineTimeEquation implements PolynomialTimeFunction {
 
   private double x1, y1, xDif, yDif;
 
@@ -25,4 +25,15 @@ public class LineTimeEquation implements ComplexTimeFunction {
     return new Complex(x1 + time * xDif, y1 + time * yDif);
   }
 
+  @Override
+  public void solveAtTime(double time, double[] out) {
+    out[0] = x1 + time * xDif;
+    out[1] = y1 + time * yDif;
+  }
+
+  @Override
+  public Complex[] getPolynomialCoefficients() {
+    return new Complex[]{new Complex(x1, y1), new Complex(xDif, yDif)};
+  }
+
 }
@@ -1,8 +1,8 @@
 package com.jfano.fourierapp.math;
 
-import com.jfano.fourierapp.math.functions.ComplexTimeFunction;
+import com.jfano.fourierapp.math.functions.PolynomialTimeFunction;
 
-public class QuadCurveTimeEquation implements ComplexTimeFunction {
+public class QuadCurveTimeEquation implements PolynomialTimeFunction {
 
   private Complex startPoint, controlPoint, endPoint;
 
@@ -16,7 +16,7 @@ public class QuadCurveTimeEquation implements ComplexTimeFunction {
   @Override
   public Complex solveAtTime(double time) {
 
-    Complex solution = controlPoint;
+    Complex solution = new Complex(controlPoint.getReal(), controlPoint.getImaginary());
     solution.add(startPoint.getAdd(controlPoint.getMult(-1)).getMult((1 - time) * (1 - time)));
     solution.add(endPoint.getAdd(controlPoint.getMult(-1)).getMult(time * time));
 
@@ -24,4 +24,31 @@ public class QuadCurveTimeEquation implements ComplexTimeFunction {
 
   }
 
+  @Override
+  public void solveAtTime(double time, double[] out) {
+
+    double startWeight = (1 - time) * (1 - time), endWeight = time * time;
+    double controlWeight = 1 - startWeight - endWeight;
+
+    out[0] = startPoint.getReal() * startWeight + controlPoint.getReal() * controlWeight
+        + endPoint.getReal() * endWeight;
+    out[1] = startPoint.getImaginary() * startWeight + controlPoint.getImaginary() * controlWeight
+        + endPoint.getImaginary() * endWeight;
+
+  }
+
+  /**
+   * Expands the Bezier form into the power basis: startPoint + 2 * (controlPoint - startPoint) * t
+   * + (startPoint - 2 * controlPoint + endPoint) * t^2
+   */
+  @Override
+  public Complex[] getPolynomialCoefficients() {
+
+    Complex linear = controlPoint.getAdd(startPoint.getMult(-1)).getMult(2);
+    Complex quadratic = startPoint.getAdd(controlPoint.getMult(-2)).getAdd(endPoint);
+
+    return new Complex[]{startPoint.getMult(1), linear, quadratic};
+
+  }
+
 }
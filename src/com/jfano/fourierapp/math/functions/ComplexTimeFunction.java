@@ -20,4 +20,20 @@ public interface ComplexTimeFunction {
    */
   Complex solveAtTime(double time);
 
+  /**
+   * Solves this <code>ComplexTimeFunction</code> at the given time, writing the real and imaginary
+   * components of the solution into <code>out[0]</code> and <code>out[1]</code>.
+   * <br><br>
+   * The default implementation delegates to <code>solveAtTime(double)</code>. Functions that are
+   * sampled in bulk should override it to avoid creating a <code>Complex</code> per call.
+   *
+   * @param time the time value used as input to the function
+   * @param out  array receiving the real and imaginary components of the solution
+   */
+  default void solveAtTime(double time, double[] out) {
+    Complex solution = solveAtTime(time);
+    out[0] = solution.getReal();
+    out[1] = solution.getImaginary();
+  }
+
 }
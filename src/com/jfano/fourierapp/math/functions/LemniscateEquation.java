@@ -14,4 +14,12 @@ public class LemniscateEquation implements ComplexTimeFunction {
     );
   }
 
+  @Override
+  public void solveAtTime(double time, double[] out) {
+    double cos = Math.cos(time * Math.PI * 2);
+    double sin = Math.sin(time * Math.PI * 2);
+    out[0] = 100 * cos / (1 + sin * sin);
+    out[1] = 100 * sin * cos / (1 + sin * sin);
+  }
+
 }
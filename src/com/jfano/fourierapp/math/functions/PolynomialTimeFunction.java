@@ -0,0 +1,21 @@
+package com.jfano.fourierapp.math.functions;
+
+import com.jfano.fourierapp.math.Complex;
+
+/**
+ * A <code>ComplexTimeFunction</code> which is a polynomial in time over its domain of [0, 1]. Such
+ * functions have integrals with exact closed forms.
+ *
+ * @see ComplexTimeFunction
+ */
+public interface PolynomialTimeFunction extends ComplexTimeFunction {
+
+  /**
+   * Gets the coefficients of this function in the power basis, such that F(t) = c[0] + c[1] * t +
+   * c[2] * t^2 + ...
+   *
+   * @return the <code>Complex</code> coefficients, lowest power first
+   */
+  Complex[] getPolynomialCoefficients();
+
+}
@@ -1,18 +1,23 @@
 package com.jfano.fourierapp.math.functions;
 
+import com.jfano.fourierapp.events.ShapeLoadEvent;
 import com.jfano.fourierapp.math.Complex;
 import com.jfano.fourierapp.math.CubicCurveTimeEquation;
 import com.jfano.fourierapp.math.LineTimeEquation;
 import com.jfano.fourierapp.math.QuadCurveTimeEquation;
+import com.jfano.fourierapp.path.CompiledShapeCache;
 import com.jfano.fourierapp.path.JavaFX_Path2D;
 import java.awt.Shape;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.io.BufferedReader;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -27,7 +32,19 @@ import java.util.List;
  */
 public class ShapeFunction implements ComplexTimeFunction {
 
-  private ComplexTimeFunction[] lines = new ComplexTimeFunction[0];
+  // Number of pieces each segment is split into when measuring arc length
+  private static final int ARC_LENGTH_SUBDIVISIONS = 16;
+
+  private PolynomialTimeFunction[] lines = new PolynomialTimeFunction[0];
+  // Start time of each piece when timing by arc length, plus a final entry of 1. Null when every
+  // segment is given an equal share of the domain.
+  private double[] pieceStart;
+  // Polynomial pieces of the function, used to calculate exact Fourier coefficients. Piece i covers
+  // the times [analyticStart[i], analyticStart[i] + analyticWidth[i]]. Over those times, the
+  // function is a polynomial in the piece's own local time u in [0, 1], with the real and imaginary
+  // parts of the coefficient of u^k at analyticPoly[i * 8 + 2 * k] and analyticPoly[i * 8 + 2 * k +
+  // 1].
+  private double[] analyticStart, analyticWidth, analyticPoly;
 
   /**
    * Initialize this shape function from a <code>PathIterator</code>. The generated function will
@@ -53,47 +70,27 @@ public class ShapeFunction implements ComplexTimeFunction {
 
   /**
    * Initialize this shape function from a SVG file. Configures the function such that it traces the
-   * path contained within the SVG file.
+   * paths contained within the SVG file, joined in document order. Files loaded before are taken
+   * from the shared <code>CompiledShapeCache</code> rather than parsed again.
    *
-   * @param svgpath the path to the target SVG file
-   * @throws IOException
+   * @param svgpath the path to the target SVG file, as a resource
+   * @throws IOException if the file could not be found or read, or has no path
    */
   public ShapeFunction(String svgpath) throws IOException {
 
-    String result = "";
-    boolean found = false, done = false;
-
-    try (BufferedReader lineReader = new BufferedReader(
-        new InputStreamReader(ShapeFunction.class.getResourceAsStream(svgpath)))) {
-
-      for (String line; (line = lineReader.readLine().replaceAll("\\s+", "")) != null && !done; ) {
-
-        if (!found && line.startsWith("<path")) {
-
-          found = true;
-          line = line.substring(line.indexOf("d=\"") + 3);
-
-        }
-        if (found) {
-
-          if (line.endsWith("/>")) {
-
-            done = true;
-            line = line.substring(0, line.lastIndexOf("/>") - 1);
-
-          }
-
-          result += line;
-
-        }
-
-      }
+    ShapeLoadEvent event = new ShapeLoadEvent();
+    event.begin();
 
+    InputStream resource = ShapeFunction.class.getResourceAsStream(svgpath);
+    if (resource == null) {
+      throw new FileNotFoundException("No SVG resource at " + svgpath);
     }
 
-    // Generate a Path2D from the SVG using JavaFX's Path2D class
-    JavaFX_Path2D svg = new JavaFX_Path2D();
-    svg.appendSVGPath(result);
+    // Load the paths out of the file into JavaFX's Path2D class, or from the cache
+    JavaFX_Path2D svg;
+    try (InputStream in = resource) {
+      svg = CompiledShapeCache.getDefault().load(in.readAllBytes());
+    }
 
     // Create a transform matrix to adjust the origin point and scaling of the generated path
     Rectangle2D bounds = svg.getBounds2D();
@@ -104,6 +101,13 @@ public class ShapeFunction implements ComplexTimeFunction {
     // Create a formula from the final path
     init(adjust.createTransformedShape(svg).getPathIterator(null));
 
+    event.end();
+    if (event.shouldCommit()) {
+      event.source = svgpath;
+      event.segments = lines.length;
+      event.commit();
+    }
+
   }
 
   /**
@@ -117,7 +121,7 @@ public class ShapeFunction implements ComplexTimeFunction {
    */
   private void init(PathIterator points) {
 
-    List<ComplexTimeFunction> dynLines = new ArrayList<ComplexTimeFunction>();
+    List<PolynomialTimeFunction> dynLines = new ArrayList<PolynomialTimeFunction>();
 
     float[] buffer = new float[6];
     Point2D last = new Point2D.Double(), current = new Point2D.Double();
@@ -185,14 +189,332 @@ public class ShapeFunction implements ComplexTimeFunction {
 
     lines = dynLines.toArray(lines);
 
+    buildAnalyticPieces();
+
+  }
+
+  /**
+   * Chooses how the domain [0, 1] is shared between the segments of the shape.
+   * <br><br>
+   * By default, every segment gets an equal share, no matter its size. With arc length timing,
+   * each segment's share is proportional to its length, and time within a curved segment is
+   * re-mapped so that evenly spaced times land at (approximately) evenly spaced distances along
+   * the perimeter. Evenly spaced samples then cover long and short segments alike, so fewer
+   * samples are needed to approximate the shape equally well.
+   *
+   * @param enabled true to time the function by arc length, false to share the domain equally
+   */
+  public void setArcLengthTiming(boolean enabled) {
+
+    if (!enabled) {
+      pieceStart = null;
+      buildAnalyticPieces();
+      return;
+    }
+
+    // Measure every segment as a polyline of ARC_LENGTH_SUBDIVISIONS pieces
+    double[] cumulative = new double[lines.length * ARC_LENGTH_SUBDIVISIONS + 1];
+    double[] previous = new double[2], next = new double[2];
+
+    for (int line = 0; line < lines.length; line++) {
+
+      lines[line].solveAtTime(0, previous);
+
+      for (int i = 1; i <= ARC_LENGTH_SUBDIVISIONS; i++) {
+
+        int piece = line * ARC_LENGTH_SUBDIVISIONS + i;
+        lines[line].solveAtTime((double) i / ARC_LENGTH_SUBDIVISIONS, next);
+        cumulative[piece] = cumulative[piece - 1]
+            + Math.hypot(next[0] - previous[0], next[1] - previous[1]);
+
+        double[] temp = previous;
+        previous = next;
+        next = temp;
+
+      }
+
+    }
+
+    double perimeter = cumulative[cumulative.length - 1];
+
+    // A shape with no length can't be timed by it
+    if (!(perimeter > 0)) {
+      pieceStart = null;
+      buildAnalyticPieces();
+      return;
+    }
+
+    for (int i = 0; i < cumulative.length; i++) {
+      cumulative[i] /= perimeter;
+    }
+    cumulative[cumulative.length - 1] = 1;
+
+    pieceStart = cumulative;
+    buildAnalyticPieces();
+
+  }
+
+  /**
+   * Splits this function into the time ranges over which it is a single polynomial, re-expressing
+   * each segment's polynomial in terms of the local time of every piece it is timed by.
+   */
+  private void buildAnalyticPieces() {
+
+    int subdivisions = pieceStart == null ? 1 : ARC_LENGTH_SUBDIVISIONS;
+    int count = lines.length * subdivisions;
+
+    analyticStart = new double[count];
+    analyticWidth = new double[count];
+    analyticPoly = new double[count * 8];
+
+    for (int line = 0; line < lines.length; line++) {
+
+      Complex[] coefficients = lines[line].getPolynomialCoefficients();
+
+      for (int sub = 0; sub < subdivisions; sub++) {
+
+        int piece = line * subdivisions + sub;
+
+        if (pieceStart == null) {
+          analyticStart[piece] = (double) line / lines.length;
+          analyticWidth[piece] = 1.0 / lines.length;
+        } else {
+          analyticStart[piece] = pieceStart[piece];
+          analyticWidth[piece] = pieceStart[piece + 1] - pieceStart[piece];
+        }
+
+        // The piece covers segment times s = offset + scale * u. Substituting into
+        // Σ c[k] * s^k and expanding gives the coefficient of u^j as
+        // Σ (k choose j) * c[k] * offset^(k - j) * scale^j
+        double offset = (double) sub / subdivisions, scale = 1.0 / subdivisions;
+
+        for (int j = 0; j < coefficients.length; j++) {
+
+          double real = 0, img = 0, binomial = 1;
+
+          for (int k = j; k < coefficients.length; k++) {
+
+            if (k > j) {
+              binomial = binomial * k / (k - j);
+            }
+
+            double weight = binomial * Math.pow(offset, k - j) * Math.pow(scale, j);
+            real += coefficients[k].getReal() * weight;
+            img += coefficients[k].getImaginary() * weight;
+
+          }
+
+          analyticPoly[piece * 8 + 2 * j] = real;
+          analyticPoly[piece * 8 + 2 * j + 1] = img;
+
+        }
+
+      }
+
+    }
+
+  }
+
+  /**
+   * Calculates the exact Fourier coefficient ∫[0,1] F(t) * e^Complex(0, -2π * n * t) dt of this
+   * function. Every piece of the function is a polynomial of at most degree 3, so the integral over
+   * each piece has a closed form and no numerical integration is needed.
+   *
+   * @param n   the frequency of the coefficient, in cycles per unit of time
+   * @param out receives the real and imaginary components of the coefficient
+   */
+  public void fourierCoefficient(int n, double[] out) {
+
+    double omega = 2 * Math.PI * n, real = 0, img = 0;
+    double[] momentReal = new double[4], momentImg = new double[4];
+
+    for (int piece = 0; piece < analyticWidth.length; piece++) {
+
+      double width = analyticWidth[piece];
+
+      if (width == 0) {
+        continue;
+      }
+
+      // ∫[piece] P(u) e^(-iωt) dt
+      //     = width * e^(-iω * start) * Σ q[k] ∫[0,1] u^k e^(-iω * width * u) du
+      moments(omega * width, momentReal, momentImg);
+
+      double sumReal = 0, sumImg = 0;
+      for (int k = 0; k < 4; k++) {
+        double qReal = analyticPoly[piece * 8 + 2 * k], qImg = analyticPoly[piece * 8 + 2 * k + 1];
+        sumReal += qReal * momentReal[k] - qImg * momentImg[k];
+        sumImg += qReal * momentImg[k] + qImg * momentReal[k];
+      }
+
+      double phase = -omega * analyticStart[piece];
+      double cos = Math.cos(phase), sin = Math.sin(phase);
+
+      real += width * (sumReal * cos - sumImg * sin);
+      img += width * (sumReal * sin + sumImg * cos);
+
+    }
+
+    out[0] = real;
+    out[1] = img;
+
+  }
+
+  /**
+   * Calculates the exact Fourier coefficient ∫[0,1] F(t) * e^Complex(0, -2π * n * t) dt of this
+   * function.
+   *
+   * @param n the frequency of the coefficient, in cycles per unit of time
+   * @return the <code>Complex</code> coefficient
+   * @see #fourierCoefficient(int, double[])
+   */
+  public Complex fourierCoefficient(int n) {
+    double[] out = new double[2];
+    fourierCoefficient(n, out);
+    return new Complex(out[0], out[1]);
+  }
+
+  /**
+   * Hashes the path this function traces, and how it is timed along that path, so series derived
+   * from the function can be stored and found again. Functions with equal hashes are equal.
+   *
+   * @return the SHA-256 hash of the function's polynomial pieces, 32 bytes long
+   */
+  public byte[] contentHash() {
+
+    ByteBuffer pieces = ByteBuffer.allocate(
+        (analyticStart.length + analyticWidth.length + analyticPoly.length) * Double.BYTES);
+    pieces.asDoubleBuffer().put(analyticStart).put(analyticWidth).put(analyticPoly);
+
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(pieces.array());
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+
+  }
+
+  /**
+   * Calculates the moments J[k] = ∫[0,1] u^k * e^Complex(0, -theta * u) du for k in [0, 3].
+   * <br><br>
+   * Large angles use the integration by parts recurrence J[k] = (k * J[k - 1] - e^(-i * theta)) /
+   * (i * theta). That recurrence loses precision as theta approaches 0, so small angles sum the
+   * Taylor series of the exponential instead.
+   *
+   * @param theta the angle swept over the piece
+   * @param real  receives the real components of the moments
+   * @param img   receives the imaginary components of the moments
+   */
+  private static void moments(double theta, double[] real, double[] img) {
+
+    if (Math.abs(theta) < 1) {
+
+      for (int k = 0; k < 4; k++) {
+
+        // term[j] = (-i * theta)^j / j!
+        double termReal = 1, termImg = 0, sumReal = 0, sumImg = 0;
+
+        // Every moment is at least 1 / 4, so terms this small no longer affect the sum
+        for (int j = 0; Math.abs(termReal) + Math.abs(termImg) > 1e-18; j++) {
+
+          sumReal += termReal / (k + j + 1);
+          sumImg += termImg / (k + j + 1);
+
+          double nextReal = termImg * theta / (j + 1), nextImg = -termReal * theta / (j + 1);
+          termReal = nextReal;
+          termImg = nextImg;
+
+        }
+
+        real[k] = sumReal;
+        img[k] = sumImg;
+
+      }
+
+      return;
+
+    }
+
+    double cos = Math.cos(theta), sin = Math.sin(theta);
+
+    // Dividing by i * theta maps (a + bi) to (b - ai) / theta
+    real[0] = sin / theta;
+    img[0] = -(1 - cos) / theta;
+
+    for (int k = 1; k < 4; k++) {
+      double numReal = k * real[k - 1] - cos, numImg = k * img[k - 1] + sin;
+      real[k] = numImg / theta;
+      img[k] = -numReal / theta;
+    }
+
+  }
+
+  /**
+   * Finds the piece that the given time falls in when timing by arc length. This is the last piece
+   * which starts at or before the time, so pieces with no length are skipped over.
+   *
+   * @param time the time to look up
+   * @return the index of the piece
+   */
+  private int pieceAt(double time) {
+
+    int low = 0, high = pieceStart.length - 2;
+
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (pieceStart[mid] <= time) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+
+    return low;
+
+  }
+
+  /**
+   * Converts a time into the local time of the given piece's segment when timing by arc length.
+   *
+   * @param piece the piece the time falls in
+   * @param time  the time to convert
+   * @return the time to solve the piece's segment at
+   */
+  private double pieceTime(int piece, double time) {
+
+    double width = pieceStart[piece + 1] - pieceStart[piece];
+    double fraction = width > 0 ? (time - pieceStart[piece]) / width : 0;
+
+    return (piece % ARC_LENGTH_SUBDIVISIONS + fraction) / ARC_LENGTH_SUBDIVISIONS;
+
   }
 
   @Override
   public Complex solveAtTime(double time) {
 
+    if (pieceStart != null) {
+      int piece = pieceAt(time);
+      return lines[piece / ARC_LENGTH_SUBDIVISIONS].solveAtTime(pieceTime(piece, time));
+    }
+
     int line = (int) (time * lines.length);
 
     return lines[line].solveAtTime((time - (double) line / lines.length) * lines.length);
   }
 
+  @Override
+  public void solveAtTime(double time, double[] out) {
+
+    if (pieceStart != null) {
+      int piece = pieceAt(time);
+      lines[piece / ARC_LENGTH_SUBDIVISIONS].solveAtTime(pieceTime(piece, time), out);
+      return;
+    }
+
+    int line = (int) (time * lines.length);
+
+    lines[line].solveAtTime((time - (double) line / lines.length) * lines.length, out);
+  }
+
 }
@@ -0,0 +1,235 @@
+package com.jfano.fourierapp.path;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Caches the paths loaded from SVG files by <code>SVGPathLoader</code>, keyed by a hash of each
+ * file's content, so loading the same asset again skips parsing it and building its path.
+ * <br><br>
+ * Paths are compiled into a compact binary form: a short header, then the path's segment types as
+ * bytes and its coordinates as floats. Compiled paths are kept in memory for the life of the cache
+ * and, if the cache has a directory, in a file per asset there, so later runs load them too. A
+ * cached file which cannot be read is ignored and the SVG file is loaded again, and one which
+ * cannot be written is only kept in memory. Such failures are passed to the cache's failure
+ * handler, which ignores them unless one is set.
+ * <br><br>
+ * Safe to use from several threads at once.
+ */
+public final class CompiledShapeCache {
+
+  // "FSPC". The version must change whenever the binary form, or the paths the loader produces,
+  // change, so stale files are loaded again.
+  private static final int MAGIC = 0x46535043, VERSION = 2;
+  private static final int HEADER_SIZE = 5 * Integer.BYTES;
+
+  private static final CompiledShapeCache DEFAULT = new CompiledShapeCache(defaultDirectory());
+
+  private final Path directory;
+  private final Map<String, byte[]> compiled = new ConcurrentHashMap<>();
+  private volatile Consumer<IOException> failureHandler = e -> {};
+
+  /**
+   * Creates an empty cache.
+   *
+   * @param directory the directory compiled paths are stored in, created if it does not exist, or
+   *                  null to only keep them in memory
+   */
+  public CompiledShapeCache(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Gets the cache shared by the whole program. Its directory is given by the
+   * <code>fourierapp.shapeCache</code> system property, and defaults to
+   * <code>.cache/fourierapp/shapes</code> in the user's home directory. An empty property keeps
+   * compiled paths in memory only.
+   *
+   * @return the shared cache
+   */
+  public static CompiledShapeCache getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Sets what is done when a compiled path cannot be read from or written to the cache's
+   * directory. The cache carries on without the file either way, so by default nothing is done.
+   *
+   * @param handler given each failure, possibly from several threads at once
+   */
+  public void setFailureHandler(Consumer<IOException> handler) {
+    failureHandler = Objects.requireNonNull(handler);
+  }
+
+  /**
+   * Loads every path in an SVG file, as by <code>SVGPathLoader.readPaths</code>, from the cache if
+   * the same file was loaded before.
+   *
+   * @param svg the content of the SVG file, encoded as UTF-8
+   * @return the paths, joined. The path is not shared, so may be modified
+   * @throws IOException              if the file is malformed, or has no path
+   * @throws IllegalArgumentException if a path's data does not match the SVG path grammar
+   */
+  public JavaFX_Path2D load(byte[] svg) throws IOException {
+
+    String key = hash(svg);
+
+    byte[] bytes = compiled.get(key);
+    if (bytes == null) {
+      bytes = readFile(key);
+    }
+
+    JavaFX_Path2D path = bytes == null ? null : decode(bytes);
+
+    if (path != null) {
+      compiled.putIfAbsent(key, bytes);
+      return path;
+    }
+
+    path = SVGPathLoader.readPaths(ByteBuffer.wrap(svg));
+    bytes = encode(path);
+
+    compiled.put(key, bytes);
+    writeFile(key, bytes);
+
+    return path;
+
+  }
+
+  /**
+   * Compiles a path into its binary form.
+   */
+  static byte[] encode(JavaFX_Path2D path) {
+
+    ByteBuffer bytes = ByteBuffer.allocate(
+        HEADER_SIZE + path.numTypes + path.numCoords * Float.BYTES);
+
+    bytes.putInt(MAGIC).putInt(VERSION).putInt(path.windingRule)
+        .putInt(path.numTypes).putInt(path.numCoords)
+        .put(path.pointTypes, 0, path.numTypes);
+    bytes.asFloatBuffer().put(path.floatCoords, 0, path.numCoords);
+
+    return bytes.array();
+
+  }
+
+  /**
+   * Rebuilds a path from its binary form.
+   *
+   * @return the path, or null if the bytes are not a compiled path of this version
+   */
+  static JavaFX_Path2D decode(byte[] compiled) {
+
+    ByteBuffer bytes = ByteBuffer.wrap(compiled);
+
+    if (bytes.remaining() < HEADER_SIZE
+        || bytes.getInt() != MAGIC || bytes.getInt() != VERSION) {
+      return null;
+    }
+
+    int windingRule = bytes.getInt(), numTypes = bytes.getInt(), numCoords = bytes.getInt();
+    if (numTypes < 0 || numCoords < 0
+        || bytes.remaining() != numTypes + (long) numCoords * Float.BYTES) {
+      return null;
+    }
+
+    byte[] types = new byte[numTypes];
+    bytes.get(types);
+    float[] coords = new float[numCoords];
+    bytes.asFloatBuffer().get(coords);
+
+    return new JavaFX_Path2D(windingRule, types, numTypes, coords, numCoords);
+
+  }
+
+  private byte[] readFile(String key) {
+
+    if (directory == null) {
+      return null;
+    }
+
+    try {
+      return Files.readAllBytes(directory.resolve(key + ".shape"));
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      failureHandler.accept(
+          new IOException("Failed to read cached shape " + key + ": " + e.getMessage(), e));
+      return null;
+    }
+
+  }
+
+  private void writeFile(String key, byte[] bytes) {
+
+    if (directory == null) {
+      return;
+    }
+
+    try {
+
+      Files.createDirectories(directory);
+
+      // Write to a temporary file first, so other programs never read a partly written file
+      Path temp = Files.createTempFile(directory, key, ".tmp");
+      Files.write(temp, bytes);
+
+      Path target = directory.resolve(key + ".shape");
+      try {
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+
+    } catch (IOException e) {
+      failureHandler.accept(
+          new IOException("Failed to cache shape " + key + ": " + e.getMessage(), e));
+    }
+
+  }
+
+  private static String hash(byte[] content) {
+
+    try {
+
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+
+      StringBuilder hex = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+
+      return hex.toString();
+
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+
+  }
+
+  private static Path defaultDirectory() {
+
+    String property = System.getProperty("fourierapp.shapeCache");
+
+    if (property == null) {
+      return Paths.get(System.getProperty("user.home"), ".cache", "fourierapp", "shapes");
+    }
+
+    return property.isEmpty() ? null : Paths.get(property);
+
+  }
+
+}
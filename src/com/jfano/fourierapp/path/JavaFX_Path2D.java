@@ -8,6 +8,9 @@ import java.awt.geom.IllegalPathStateException;
 import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 
 /*
  * Copyright (c) 2006, 2016, Oracle and/or its affiliates. All rights reserved.
@@ -1534,27 +1537,46 @@ public class JavaFX_Path2D implements Shape {
 	}
 
 	static class SVGParser {
-		final String svgpath;
-		final int len;
+		// Reads further path data once buf is used up, or null if buf holds all of it
+		final Reader in;
+		char[] buf;
+		int len;
 		int pos;
+		// Characters of path data consumed before buf
+		long offset;
 		boolean allowcomma;
+		// Holds the characters of the number being parsed, which may span several reads
+		final StringBuilder number = new StringBuilder(16);
 
 		public SVGParser(String svgpath) {
-			this.svgpath = svgpath;
-			this.len = svgpath.length();
+			this.in = null;
+			this.buf = svgpath.toCharArray();
+			this.len = buf.length;
+		}
+
+		public SVGParser(Reader in) {
+			this.in = in;
+			this.buf = new char[8192];
 		}
 
 		public boolean isDone() {
-			return (toNextNonWsp() >= len);
+			return !hasNext(toNextNonWsp());
 		}
 
 		public char getChar() {
-			return svgpath.charAt(pos++);
+			return buf[pos++];
+		}
+
+		/**
+		 * The position of the next character in the path data, for error messages.
+		 */
+		public long position() {
+			return offset + pos;
 		}
 
 		public boolean nextIsNumber() {
-			if (toNextNonWsp() < len) {
-				switch (svgpath.charAt(pos)) {
+			if (hasNext(toNextNonWsp())) {
+				switch (buf[pos]) {
 				case '-':
 				case '+':
 				case '0':
@@ -1583,11 +1605,13 @@ public class JavaFX_Path2D implements Shape {
 		}
 
 		public float getFloat() {
-			int start = toNextNonWsp();
+			toNextNonWsp();
+			long start = position();
 			this.allowcomma = true;
-			int end = toNumberEnd();
-			if (start < end) {
-				String flstr = svgpath.substring(start, end);
+			number.setLength(0);
+			toNumberEnd();
+			if (number.length() > 0) {
+				String flstr = number.toString();
 				try {
 					return Float.parseFloat(flstr);
 				} catch (NumberFormatException e) {
@@ -1600,8 +1624,8 @@ public class JavaFX_Path2D implements Shape {
 		public boolean b() {
 			toNextNonWsp();
 			this.allowcomma = true;
-			if (pos < len) {
-				char flag = svgpath.charAt(pos);
+			if (hasNext(pos)) {
+				char flag = buf[pos];
 				switch (flag) {
 				case '0':
 					pos++;
@@ -1610,15 +1634,42 @@ public class JavaFX_Path2D implements Shape {
 					pos++;
 					return true;
 				}
-				throw new IllegalArgumentException("invalid boolean flag (" + flag + ") in path at pos=" + pos);
+				throw new IllegalArgumentException("invalid boolean flag (" + flag + ") in path at pos=" + position());
 			}
 			throw new IllegalArgumentException("end of path looking for boolean");
 		}
 
+		/**
+		 * Whether there is a character at the given position, reading more path data
+		 * if it is at the end of the buffer.
+		 */
+		private boolean hasNext(int at) {
+			if (at < len) {
+				return true;
+			}
+			if (in == null) {
+				return false;
+			}
+			offset += len;
+			pos = len = 0;
+			try {
+				int n;
+				do {
+					n = in.read(buf, 0, buf.length);
+				} while (n == 0);
+				if (n > 0) {
+					len = n;
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return len > 0;
+		}
+
 		private int toNextNonWsp() {
 			boolean canbecomma = this.allowcomma;
-			while (pos < len) {
-				switch (svgpath.charAt(pos)) {
+			while (hasNext(pos)) {
+				switch (buf[pos]) {
 				case ',':
 					if (!canbecomma) {
 						return pos;
@@ -1638,16 +1689,17 @@ public class JavaFX_Path2D implements Shape {
 			return pos;
 		}
 
-		private int toNumberEnd() {
+		private void toNumberEnd() {
 			boolean allowsign = true;
 			boolean hasexp = false;
 			boolean hasdecimal = false;
-			while (pos < len) {
-				switch (svgpath.charAt(pos)) {
+			while (hasNext(pos)) {
+				char c = buf[pos];
+				switch (c) {
 				case '-':
 				case '+':
 					if (!allowsign)
-						return pos;
+						return;
 					allowsign = false;
 					break;
 				case '0':
@@ -1665,21 +1717,21 @@ public class JavaFX_Path2D implements Shape {
 				case 'E':
 				case 'e':
 					if (hasexp)
-						return pos;
+						return;
 					hasexp = allowsign = true;
 					break;
 				case '.':
 					if (hasexp || hasdecimal)
-						return pos;
+						return;
 					hasdecimal = true;
 					allowsign = false;
 					break;
 				default:
-					return pos;
+					return;
 				}
+				number.append(c);
 				pos++;
 			}
-			return pos;
 		}
 	}
 
@@ -1706,7 +1758,30 @@ public class JavaFX_Path2D implements Shape {
 	 * @throws IllegalPathStateException if there is no current point in the path
 	 */
 	public final void appendSVGPath(String svgpath) {
-		SVGParser p = new SVGParser(svgpath);
+		appendSVGPath(new SVGParser(svgpath));
+	}
+
+	/**
+	 * Appends the geometry of the path read from the specified {@code Reader}, in
+	 * the format of an SVG path, as by {@link #appendSVGPath(String)}. The path is
+	 * parsed as it is read, so the path data is never held in memory all at once.
+	 *
+	 * @param in the {@code Reader} to read the path from, up to its end. It is not
+	 *           closed
+	 * @throws IOException               if the path could not be read
+	 * @throws IllegalArgumentException  if the path does not match the SVG path
+	 *                                   grammar
+	 * @throws IllegalPathStateException if there is no current point in the path
+	 */
+	public final void appendSVGPath(Reader in) throws IOException {
+		try {
+			appendSVGPath(new SVGParser(in));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private void appendSVGPath(SVGParser p) {
 		p.allowcomma = false;
 		while (!p.isDone()) {
 			p.allowcomma = false;
@@ -1813,7 +1888,7 @@ public class JavaFX_Path2D implements Shape {
 				closePath();
 				break;
 			default:
-				throw new IllegalArgumentException("invalid command (" + cmd + ") in SVG path at pos=" + p.pos);
+				throw new IllegalArgumentException("invalid command (" + cmd + ") in SVG path at pos=" + p.position());
 			}
 			p.allowcomma = false;
 		}
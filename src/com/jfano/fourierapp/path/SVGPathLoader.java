@@ -0,0 +1,552 @@
+package com.jfano.fourierapp.path;
+
+import java.awt.geom.AffineTransform;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Loads the geometry of every <code>&lt;path&gt;</code> element in an SVG file in a single
+ * streaming pass, joined into one path.
+ * <br><br>
+ * The file is scanned as it is read, skipping comments, processing instructions and text. The
+ * <code>d</code> attribute of each path is fed straight into <code>JavaFX_Path2D</code>'s path
+ * parser as it is read, so loading takes time linear in the size of the file and the loader never
+ * copies the file or its path data whole. A file given as a <code>Reader</code> is streamed
+ * through a small buffer, and one already in memory as a <code>ByteBuffer</code>, read or mapped by
+ * the caller, is decoded in place.
+ * <br><br>
+ * Paths are transformed by their own <code>transform</code> attribute and those of every element
+ * they are nested in, such as groups. Paths which are never drawn directly, such as those in
+ * <code>&lt;defs&gt;</code> or clip paths, are skipped. Other shapes, such as
+ * <code>&lt;rect&gt;</code> or <code>&lt;circle&gt;</code>, are not loaded.
+ */
+public final class SVGPathLoader {
+
+  // Elements whose content is only drawn when referenced from elsewhere
+  private static final Set<String> HIDDEN_CONTAINERS = new HashSet<>(Arrays.asList(
+      "defs", "clipPath", "mask", "marker", "pattern", "symbol"));
+
+  private final Reader in;
+  private final char[] buf = new char[8192];
+  private int pos, len;
+  private final StringBuilder name = new StringBuilder();
+
+  // Attributes of the tag read last
+  private String transform;
+  private boolean selfClosing, hasPathData;
+
+  private SVGPathLoader(Reader in) {
+    this.in = in;
+  }
+
+  /**
+   * Reads the geometry of every <code>&lt;path&gt;</code> element in an SVG file.
+   *
+   * @param in the SVG file. It is read to its end, and not closed
+   * @return the paths, joined in the order they appear in the file
+   * @throws IOException              if the file could not be read, is malformed, or has no path
+   * @throws IllegalArgumentException if a path's data does not match the SVG path grammar
+   */
+  public static JavaFX_Path2D readPaths(Reader in) throws IOException {
+    return new SVGPathLoader(in).readAll();
+  }
+
+  /**
+   * Reads the geometry of every <code>&lt;path&gt;</code> element in an SVG file encoded as UTF-8,
+   * such as a file mapped into memory.
+   *
+   * @param utf8 the SVG file, from its position to its limit. The buffer's position is not changed
+   * @return the paths, joined in the order they appear in the file
+   * @throws IOException              if the file is malformed, or has no path
+   * @throws IllegalArgumentException if a path's data does not match the SVG path grammar
+   */
+  public static JavaFX_Path2D readPaths(ByteBuffer utf8) throws IOException {
+    return readPaths(new DecodingReader(utf8.duplicate()));
+  }
+
+  private JavaFX_Path2D readAll() throws IOException {
+
+    JavaFX_Path2D joined = new JavaFX_Path2D();
+    boolean found = false;
+
+    // The transform and visibility of each element the scanner is inside of
+    Deque<AffineTransform> transforms = new ArrayDeque<>();
+    Deque<Boolean> hidden = new ArrayDeque<>();
+    transforms.push(new AffineTransform());
+    hidden.push(false);
+
+    while (skipPast('<')) {
+
+      int c = read();
+
+      if (c == '!') {
+        skipMarkup();
+      } else if (c == '?') {
+        skipPast("?>");
+      } else if (c == '/') {
+        // End tags have no attributes
+        skipPast('>');
+        if (transforms.size() > 1) {
+          transforms.pop();
+          hidden.pop();
+        }
+      } else if (c >= 0) {
+
+        readName(c);
+        String element = localName();
+        boolean isPath = element.equals("path");
+
+        JavaFX_Path2D path = isPath ? new JavaFX_Path2D() : null;
+        readAttributes(path);
+
+        AffineTransform tx = transforms.peek();
+        if (transform != null) {
+          tx = new AffineTransform(tx);
+          tx.concatenate(parseTransform(transform));
+        }
+
+        boolean isHidden = hidden.peek() || HIDDEN_CONTAINERS.contains(element);
+
+        if (isPath && hasPathData && !isHidden) {
+          joined.append(path.getPathIterator(tx.isIdentity() ? null : tx), false);
+          found = true;
+        }
+
+        if (!selfClosing) {
+          transforms.push(tx);
+          hidden.push(isHidden);
+        }
+
+      }
+
+    }
+
+    if (!found) {
+      throw new IOException("No <path> element with path data found");
+    }
+
+    return joined;
+
+  }
+
+  /**
+   * Reads the attributes of a start tag, up to the end of the tag.
+   *
+   * @param path receives the path data in the tag's <code>d</code> attribute, or null to skip it
+   */
+  private void readAttributes(JavaFX_Path2D path) throws IOException {
+
+    transform = null;
+    selfClosing = hasPathData = false;
+
+    while (true) {
+
+      int c = skipWhitespace();
+
+      if (c < 0) {
+        throw new IOException("Unexpected end of file inside a tag");
+      } else if (c == '>') {
+        return;
+      } else if (c == '/') {
+        selfClosing = true;
+        continue;
+      }
+
+      selfClosing = false;
+      readName(c);
+
+      c = skipWhitespace();
+      if (c != '=') {
+        // Not well formed, but there is no value to skip
+        if (c >= 0) {
+          pos--;
+        }
+        continue;
+      }
+
+      int quote = skipWhitespace();
+      if (quote != '"' && quote != '\'') {
+        throw new IOException("Attribute " + name + " has no quoted value");
+      }
+
+      String attribute = name.toString();
+
+      if (path != null && attribute.equals("d")) {
+        path.appendSVGPath(new AttributeReader((char) quote));
+        hasPathData = true;
+      } else if (attribute.equals("transform")) {
+        transform = readValue((char) quote);
+      } else {
+        skipPast((char) quote);
+      }
+
+    }
+
+  }
+
+  /**
+   * Reads the rest of an attribute's value.
+   */
+  private String readValue(char quote) throws IOException {
+
+    StringBuilder value = new StringBuilder();
+    char[] chunk = new char[256];
+    Reader attribute = new AttributeReader(quote);
+
+    for (int n = attribute.read(chunk); n >= 0; n = attribute.read(chunk)) {
+      value.append(chunk, 0, n);
+    }
+
+    return value.toString();
+
+  }
+
+  /**
+   * Parses an SVG transform list, such as <code>translate(10 20) rotate(45)</code>.
+   *
+   * @param list the transform list
+   * @return the transform, with the list's transforms applied from last to first
+   */
+  static AffineTransform parseTransform(String list) throws IOException {
+
+    AffineTransform tx = new AffineTransform();
+    int at = 0;
+
+    while (true) {
+
+      int open = list.indexOf('(', at);
+      if (open < 0) {
+        if (!list.substring(at).replace(',', ' ').trim().isEmpty()) {
+          throw new IOException("Malformed transform: " + list);
+        }
+        return tx;
+      }
+
+      int close = list.indexOf(')', open);
+      if (close < 0) {
+        throw new IOException("Malformed transform: " + list);
+      }
+
+      String function = list.substring(at, open).replace(',', ' ').trim();
+      String[] parts = list.substring(open + 1, close).trim().split("[\\s,]+");
+      double[] v = new double[parts[0].isEmpty() ? 0 : parts.length];
+
+      try {
+        for (int i = 0; i < v.length; i++) {
+          v[i] = Double.parseDouble(parts[i]);
+        }
+      } catch (NumberFormatException e) {
+        throw new IOException("Malformed transform: " + list, e);
+      }
+
+      if (function.equals("matrix") && v.length == 6) {
+        tx.concatenate(new AffineTransform(v));
+      } else if (function.equals("translate") && (v.length == 1 || v.length == 2)) {
+        tx.translate(v[0], v.length == 2 ? v[1] : 0);
+      } else if (function.equals("scale") && (v.length == 1 || v.length == 2)) {
+        tx.scale(v[0], v.length == 2 ? v[1] : v[0]);
+      } else if (function.equals("rotate") && v.length == 1) {
+        tx.rotate(Math.toRadians(v[0]));
+      } else if (function.equals("rotate") && v.length == 3) {
+        tx.rotate(Math.toRadians(v[0]), v[1], v[2]);
+      } else if (function.equals("skewX") && v.length == 1) {
+        tx.shear(Math.tan(Math.toRadians(v[0])), 0);
+      } else if (function.equals("skewY") && v.length == 1) {
+        tx.shear(0, Math.tan(Math.toRadians(v[0])));
+      } else {
+        throw new IOException("Unsupported transform: " + list.substring(at, close + 1).trim());
+      }
+
+      at = close + 1;
+
+    }
+
+  }
+
+  /**
+   * Skips a comment, CDATA section or document type declaration, just after its
+   * <code>&lt;!</code>.
+   */
+  private void skipMarkup() throws IOException {
+
+    int c = read();
+
+    if (c == '-') {
+      skipPast("-->");
+    } else if (c == '[') {
+      skipPast("]]>");
+    } else {
+      // A document type declaration, whose internal subset may hold '>'
+      int depth = 0;
+      for (; c >= 0; c = read()) {
+        if (c == '[') {
+          depth++;
+        } else if (c == ']') {
+          depth--;
+        } else if (c == '>' && depth <= 0) {
+          return;
+        }
+      }
+    }
+
+  }
+
+  /**
+   * Reads an XML name into <code>name</code>, starting with the given character.
+   */
+  private void readName(int first) throws IOException {
+
+    name.setLength(0);
+
+    for (int c = first; c >= 0; c = read()) {
+      if (Character.isWhitespace(c) || c == '=' || c == '/' || c == '>') {
+        pos--;
+        return;
+      }
+      name.append((char) c);
+    }
+
+  }
+
+  /**
+   * The name just read, without any namespace prefix.
+   */
+  private String localName() {
+    return name.substring(name.indexOf(":") + 1);
+  }
+
+  /**
+   * Skips whitespace.
+   *
+   * @return the first character which is not whitespace, which is consumed, or -1 at the end of
+   * the file
+   */
+  private int skipWhitespace() throws IOException {
+
+    int c;
+    do {
+      c = read();
+    } while (c >= 0 && Character.isWhitespace(c));
+
+    return c;
+
+  }
+
+  /**
+   * Skips past the next occurrence of the given character.
+   *
+   * @return false if the end of the file was reached first
+   */
+  private boolean skipPast(char target) throws IOException {
+
+    while (fill()) {
+      for (; pos < len; pos++) {
+        if (buf[pos] == target) {
+          pos++;
+          return true;
+        }
+      }
+    }
+
+    return false;
+
+  }
+
+  /**
+   * Skips past the next occurrence of the given string.
+   */
+  private void skipPast(String target) throws IOException {
+
+    // The last few characters read, as long as the target
+    char[] window = new char[target.length()];
+    int seen = 0;
+
+    for (int c = read(); c >= 0; c = read()) {
+      System.arraycopy(window, 1, window, 0, window.length - 1);
+      window[window.length - 1] = (char) c;
+      if (++seen >= window.length && target.contentEquals(CharBuffer.wrap(window))) {
+        return;
+      }
+    }
+
+  }
+
+  /**
+   * Reads the next character.
+   *
+   * @return the character, or -1 at the end of the file
+   */
+  private int read() throws IOException {
+    return fill() ? buf[pos++] : -1;
+  }
+
+  /**
+   * Reads more of the file if every character in the buffer has been consumed.
+   *
+   * @return false at the end of the file
+   */
+  private boolean fill() throws IOException {
+
+    if (pos < len) {
+      return true;
+    }
+
+    int n;
+    do {
+      n = in.read(buf, 0, buf.length);
+    } while (n == 0);
+
+    // The buffer is left as it is, so the last character read can still be put back
+    if (n < 0) {
+      return false;
+    }
+
+    pos = 0;
+    len = n;
+
+    return true;
+
+  }
+
+  /**
+   * Reads the value of the attribute being scanned, up to its closing quote, resolving entity and
+   * character references.
+   */
+  private final class AttributeReader extends Reader {
+
+    private final char quote;
+    private boolean ended;
+
+    private AttributeReader(char quote) {
+      this.quote = quote;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int n) throws IOException {
+
+      int count = 0;
+
+      while (count < n && !ended) {
+
+        if (!fill()) {
+          throw new IOException("Unexpected end of file inside an attribute");
+        }
+
+        char c = buf[pos++];
+
+        if (c == quote) {
+          ended = true;
+        } else if (c == '&') {
+          cbuf[off + count++] = readReference();
+        } else {
+          cbuf[off + count++] = c;
+        }
+
+      }
+
+      return count == 0 && ended ? -1 : count;
+
+    }
+
+    /**
+     * Reads an entity or character reference, just after its <code>&amp;</code>.
+     */
+    private char readReference() throws IOException {
+
+      StringBuilder ref = new StringBuilder();
+      for (int c = SVGPathLoader.this.read(); c != ';'; c = SVGPathLoader.this.read()) {
+        if (c < 0 || ref.length() > 8) {
+          throw new IOException("Malformed reference &" + ref);
+        }
+        ref.append((char) c);
+      }
+
+      String r = ref.toString();
+      switch (r) {
+        case "amp":
+          return '&';
+        case "lt":
+          return '<';
+        case "gt":
+          return '>';
+        case "quot":
+          return '"';
+        case "apos":
+          return '\'';
+        default:
+          try {
+            if (r.startsWith("#x")) {
+              return (char) Integer.parseInt(r.substring(2), 16);
+            } else if (r.startsWith("#")) {
+              return (char) Integer.parseInt(r.substring(1));
+            }
+          } catch (NumberFormatException e) {
+            // Reported below
+          }
+          throw new IOException("Unknown reference &" + r + ";");
+      }
+
+    }
+
+    @Override
+    public void close() {
+      // The file is owned by the loader
+    }
+
+  }
+
+  /**
+   * Decodes UTF-8 bytes from a buffer as they are read.
+   */
+  private static final class DecodingReader extends Reader {
+
+    private final ByteBuffer bytes;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private boolean flushed;
+
+    private DecodingReader(ByteBuffer bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int n) {
+
+      // The decoder may not be used again once flushed
+      if (flushed) {
+        return -1;
+      }
+
+      CharBuffer out = CharBuffer.wrap(cbuf, off, n);
+
+      // Every byte is already in the buffer, so this is always the end of the input
+      decoder.decode(bytes, out, true);
+      if (!bytes.hasRemaining() && !flushed && out.hasRemaining()) {
+        flushed = decoder.flush(out).isUnderflow();
+      }
+
+      int count = out.position() - off;
+
+      return count == 0 && flushed ? -1 : count;
+
+    }
+
+    @Override
+    public void close() {
+      // Nothing to release
+    }
+
+  }
+
+}
@@ -0,0 +1,240 @@
+package com.jfano.fourierapp.state;
+
+import com.jfano.fourierapp.math.functions.ComplexTimeFunction;
+import com.jfano.fourierapp.state.FourierSeriesSpinners.Derivation;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Stores the constants of solved <code>FourierSeriesSpinners</code> in a directory, so a series
+ * derived once never has to be derived again, even by another run of the program.
+ * <br><br>
+ * Each series is kept in its own file, named by a hash of the goal function and the parameters the
+ * series was derived with. A file holds a header, giving the series length, the order of its
+ * spinners, the parameters and the hash of the goal, followed by the real then imaginary component
+ * of every spinner's constant as packed little-endian doubles. Files are read by mapping them into
+ * memory, so processes loading the same series share one copy in the operating system's page
+ * cache, and the constants are copied straight from it into the series.
+ * <br><br>
+ * A file which is missing, malformed, or was written for a different goal is ignored, and the
+ * series is derived and stored again. A file which cannot be read or written is passed to the
+ * store's failure handler, which ignores it unless one is set, and the series is derived as if it
+ * were missing. Safe to use from several threads and processes at once.
+ */
+public final class CoefficientStore {
+
+  // "FSCS" once written little-endian
+  private static final int MAGIC = 0x53435346, VERSION = 1;
+  // Spinners in the [0, 1, -1, 2, -2, ...] order given by FourierSeriesSpinners.termAt
+  private static final int ORDER_INTERLEAVED = 0;
+  private static final int HASH_SIZE = 32;
+  // Six ints and the hash, which keeps the doubles after it 8-byte aligned
+  private static final int HEADER_SIZE = 6 * Integer.BYTES + HASH_SIZE;
+
+  private static final CoefficientStore DEFAULT = new CoefficientStore(defaultDirectory());
+
+  private final Path directory;
+  private volatile Consumer<IOException> failureHandler = e -> {};
+
+  /**
+   * Creates a store which keeps its files in the given directory.
+   *
+   * @param directory the directory, created if it does not exist, or null to store nothing and
+   *                  always derive series afresh
+   */
+  public CoefficientStore(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Gets the store shared by the whole program. Its directory is given by the
+   * <code>fourierapp.seriesCache</code> system property, and defaults to
+   * <code>.cache/fourierapp/series</code> in the user's home directory. An empty property stores
+   * nothing.
+   *
+   * @return the shared store
+   */
+  public static CoefficientStore getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Sets what is done when a stored series cannot be read or written. The store derives the series
+   * either way, so by default nothing is done.
+   *
+   * @param handler given each failure, possibly from several threads at once
+   */
+  public void setFailureHandler(Consumer<IOException> handler) {
+    failureHandler = Objects.requireNonNull(handler);
+  }
+
+  /**
+   * Loads a Fourier series approximating the given goal from the store, or derives it as by
+   * <code>new FourierSeriesSpinners(goal, seriesLength, iterations, derivation)</code> and stores
+   * it if it was not stored before.
+   *
+   * @param sourceHash   a SHA-256 hash identifying the goal function, such as
+   *                     <code>ShapeFunction.contentHash</code>. Goals with different hashes must
+   *                     be different functions
+   * @param goal         the function to approximate
+   * @param seriesLength the length of Fourier Series (and thus, the number of spinners)
+   * @param iterations   the number of iterations used to approximate integrations
+   * @param derivation   the strategy used to derive the spinners' constants
+   * @return the series
+   */
+  public FourierSeriesSpinners load(byte[] sourceHash, ComplexTimeFunction goal, int seriesLength,
+      int iterations, Derivation derivation) {
+
+    if (sourceHash.length != HASH_SIZE) {
+      throw new IllegalArgumentException(
+          "Source hash must be " + HASH_SIZE + " bytes, got " + sourceHash.length);
+    }
+
+    if (directory == null) {
+      return new FourierSeriesSpinners(goal, seriesLength, iterations, derivation);
+    }
+
+    // ANALYTIC ignores the iteration count, so every count shares one file
+    if (derivation == Derivation.ANALYTIC) {
+      iterations = 0;
+    }
+
+    Path file = directory.resolve(
+        key(sourceHash, seriesLength, iterations, derivation) + ".series");
+
+    FourierSeriesSpinners series =
+        read(file, sourceHash, goal, seriesLength, iterations, derivation);
+
+    if (series == null) {
+      series = new FourierSeriesSpinners(goal, seriesLength, iterations, derivation);
+      write(file, sourceHash, iterations, derivation, series);
+    }
+
+    return series;
+
+  }
+
+  /**
+   * Maps a stored series into memory, and builds the series from it. The series keeps the goal, so
+   * terms can be added to it.
+   *
+   * @return the series, or null if it is not stored, or the file does not hold the expected series
+   */
+  private FourierSeriesSpinners read(Path file, byte[] sourceHash, ComplexTimeFunction goal,
+      int seriesLength, int iterations, Derivation derivation) {
+
+    MappedByteBuffer map;
+
+    // The mapping stays valid once the channel is closed
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      failureHandler.accept(
+          new IOException("Failed to read stored series " + file + ": " + e.getMessage(), e));
+      return null;
+    }
+
+    map.order(ByteOrder.LITTLE_ENDIAN);
+
+    if (map.remaining() != HEADER_SIZE + 2L * seriesLength * Double.BYTES
+        || map.getInt() != MAGIC || map.getInt() != VERSION
+        || map.getInt() != seriesLength || map.getInt() != ORDER_INTERLEAVED
+        || map.getInt() != iterations || map.getInt() != derivation.ordinal()) {
+      return null;
+    }
+
+    byte[] storedHash = new byte[HASH_SIZE];
+    map.get(storedHash);
+    if (!Arrays.equals(storedHash, sourceHash)) {
+      return null;
+    }
+
+    return new FourierSeriesSpinners(map.asDoubleBuffer(), goal, iterations, derivation);
+
+  }
+
+  private void write(Path file, byte[] sourceHash, int iterations, Derivation derivation,
+      FourierSeriesSpinners series) {
+
+    ByteBuffer bytes = ByteBuffer.allocate(HEADER_SIZE + 2 * series.seriesLength() * Double.BYTES)
+        .order(ByteOrder.LITTLE_ENDIAN);
+
+    bytes.putInt(MAGIC).putInt(VERSION).putInt(series.seriesLength()).putInt(ORDER_INTERLEAVED)
+        .putInt(iterations).putInt(derivation.ordinal()).put(sourceHash);
+    series.putAmplitudes(bytes.asDoubleBuffer());
+
+    try {
+
+      Files.createDirectories(directory);
+
+      // Write to a temporary file first, so other processes never map a partly written file
+      Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+      Files.write(temp, bytes.array());
+
+      try {
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+
+    } catch (IOException e) {
+      failureHandler.accept(
+          new IOException("Failed to store series " + file + ": " + e.getMessage(), e));
+    }
+
+  }
+
+  private static String key(byte[] sourceHash, int seriesLength, int iterations,
+      Derivation derivation) {
+
+    try {
+
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(sourceHash);
+      digest.update(ByteBuffer.allocate(3 * Integer.BYTES)
+          .putInt(seriesLength).putInt(iterations).putInt(derivation.ordinal()).array());
+
+      StringBuilder hex = new StringBuilder(HASH_SIZE * 2);
+      for (byte b : digest.digest()) {
+        hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+
+      return hex.toString();
+
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+
+  }
+
+  private static Path defaultDirectory() {
+
+    String property = System.getProperty("fourierapp.seriesCache");
+
+    if (property == null) {
+      return Paths.get(System.getProperty("user.home"), ".cache", "fourierapp", "series");
+    }
+
+    return property.isEmpty() ? null : Paths.get(property);
+
+  }
+
+}
@@ -1,15 +1,23 @@
 package com.jfano.fourierapp.state;
 
+import com.jfano.fourierapp.events.SeriesBuildEvent;
 import com.jfano.fourierapp.general.Drawable;
 import com.jfano.fourierapp.math.Complex;
+import com.jfano.fourierapp.math.FastFourierTransform;
 import com.jfano.fourierapp.math.functions.ComplexTimeFunction;
+import com.jfano.fourierapp.math.functions.ShapeFunction;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Line2D;
-import java.util.function.Function;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Class representing a set of spinners. These spinners have lengths and periods derived from a
@@ -22,15 +30,69 @@ import java.util.function.Function;
  */
 public class FourierSeriesSpinners implements Drawable {
 
-  private static final Line2D draw = new Line2D.Double();
-  private static final Ellipse2D dot = new Ellipse2D.Double();
-  private static final Ellipse2D pen = new Ellipse2D.Double();
-  private Spinner[] series;
+  /**
+   * Strategies for deriving the constants of a series' spinners.
+   */
+  public enum Derivation {
+
+    /**
+     * Samples the goal function once, then numerically integrates each spinner's constant
+     * separately from the samples. Costs O(N * M) for N spinners and M iterations per integral.
+     */
+    QUADRATURE,
+
+    /**
+     * Samples the goal function once and derives every constant from a single FFT of the samples.
+     * Produces the same constants as <code>QUADRATURE</code> in O(M log M).
+     */
+    FFT,
+
+    /**
+     * Calculates every constant exactly from the closed-form integrals of a
+     * <code>ShapeFunction</code>'s segments, in O(N * S) for S segments. The goal must be a
+     * <code>ShapeFunction</code>, and the iteration count is ignored.
+     */
+    ANALYTIC
+
+  }
+
+  // Pools for parallel derivations, by parallelism level. See pool.
+  private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+  // Scratch shapes for drawing. Per series, so separate series can be drawn on separate threads.
+  private final Line2D draw = new Line2D.Double();
+  private final Ellipse2D dot = new Ellipse2D.Double();
+  private final Ellipse2D pen = new Ellipse2D.Double();
+  // The series is stored packed; element i of each array describes the spinner at position i.
+  // Frequencies are in cycles per unit of time, and so equal each spinner's N value. The arrays may
+  // hold room for more spinners than the series has, so terms can be added without reallocating.
+  private double[] amplitudeReal, amplitudeImg, frequency;
+  private int size;
+  // The number of spinners whose constants are held, which includes any removed since they were
+  // derived. Each position always holds the same term, so those can be added back as they are.
+  private int derivedSize;
   private double time, penSize;
   private boolean hideSmallSpinners = true;
-  private Complex currentSolution;
+  // Endpoint of each spinner at the current time, i.e. the running sum of the series up to and
+  // including that spinner. The last endpoint is the solution to the whole series.
+  private double[] endpointReal, endpointImg;
+  // Phasor stepping state. Only allocated while phasor stepping is enabled.
+  private double[] phasorReal, phasorImg, rotationReal, rotationImg;
+  private double stepSize;
+  private int reanchorInterval, stepsSinceAnchor;
   // Common shapes for drawing
   private Font font = new Font("TimesNewRoman", Font.PLAIN, 10);
+  // Each spinner's label, created the first time it is drawn. Only touched while drawing.
+  private String[] labels;
+  // What the series was derived from, kept so terms can be added later. The goal is null for series
+  // not derived from a goal function.
+  private ComplexTimeFunction goal;
+  private Derivation derivation;
+  private int iterations, parallelism;
+  // The goal sampled at each of the iterations points the integrals visit, taken the first time a
+  // term is added. For FFT derivation, the transform of those samples instead, so each added term
+  // is a single lookup.
+  private double[] gridReal, gridImg;
 
   /**
    * Constructs a simple, dummy Fourier series with some <code>Spinner</code>s of various lengths
@@ -40,15 +102,16 @@ public class FourierSeriesSpinners implements Drawable {
    */
   public FourierSeriesSpinners(int seriesLength) {
 
-    series = new Spinner[seriesLength];
+    allocate(seriesLength);
 
-    for (int i = -seriesLength; i < series.length; i++) {
+    for (int i = 0; i < seriesLength; i++) {
 
-      series[i] = new Spinner(new Complex(100 / (i + 1), 0), i);
+      amplitudeReal[i] = 100 / (i + 1);
+      frequency[i] = i;
 
     }
 
-    currentSolution = solve();
+    solve(0);
 
   }
 
@@ -63,48 +126,149 @@ public class FourierSeriesSpinners implements Drawable {
    */
   public FourierSeriesSpinners(ComplexTimeFunction goal, int seriesLength, int iterations) {
 
-    genSpinners(goal, seriesLength, iterations);
+    this(goal, seriesLength, iterations, Derivation.FFT);
+
+  }
+
+  /**
+   * Constructs a Fourier series with some <code>Spinner</code>s that, when solved, attempts a
+   * 1-to-1 approximation the input/outputs of the given <code>ShapeFunction</code>. The spinners'
+   * constants are calculated exactly, without numerical integration.
+   *
+   * @param goal         the shape to approximate
+   * @param seriesLength the length of Fourier Series (and thus, the number of spinners)
+   */
+  public FourierSeriesSpinners(ShapeFunction goal, int seriesLength) {
+
+    this(goal, seriesLength, 0, Derivation.ANALYTIC);
 
   }
 
   /**
-   * Derives the constant of the nth spinner in a Fourier series with the given
-   * <code>ComplexTimeFunction</code> goal function using the given number of
-   * iterations per integral.
+   * Constructs a Fourier series with some <code>Spinner</code>s that, when solved, attempts a
+   * 1-to-1 approximation the input/outputs of the given
+   * <code>ComplexTimeFunction</code>.
+   *
+   * @param goal         the function to approximate
+   * @param seriesLength the length of Fourier Series (and thus, the number of spinners)
+   * @param iterations   the number of iterations used to approximate integrations
+   * @param derivation   the strategy used to derive the spinners' constants
+   * @throws IllegalArgumentException if the series length, or the iteration count of a derivation
+   *                                  which uses it, is below 1
+   */
+  public FourierSeriesSpinners(ComplexTimeFunction goal, int seriesLength, int iterations,
+      Derivation derivation) {
+
+    this(goal, seriesLength, iterations, derivation, 1);
+
+  }
+
+  /**
+   * Constructs a Fourier series with some <code>Spinner</code>s that, when solved, attempts a
+   * 1-to-1 approximation the input/outputs of the given
+   * <code>ComplexTimeFunction</code>. The independent parts of the derivation are split across a
+   * <code>ForkJoinPool</code> with the given parallelism level.
    * <p>
-   * <b>Assumption:</b> goal function's domain is [0, 1]
+   * <b>Note:</b> with a parallelism above 1, the goal function is solved from several threads at
+   * once, so its <code>solveAtTime</code> must be free of side effects.
    *
-   * @param modelFunction  the function the spinner should model
-   * @param termToSolveFor position of the spinner to solve for in its Fourier series
-   * @param iterations     number of iterations to use to numerically approximate integrals
-   * @return the <code>Complex</code> constant of this spinner, encoding its base position and
-   * length
+   * @param goal         the function to approximate
+   * @param seriesLength the length of Fourier Series (and thus, the number of spinners)
+   * @param iterations   the number of iterations used to approximate integrations
+   * @param derivation   the strategy used to derive the spinners' constants
+   * @param parallelism  the number of threads used to derive the constants. 1 runs on the calling
+   *                     thread
+   * @throws IllegalArgumentException if the series length, parallelism, or the iteration count of a
+   *                                  derivation which uses it, is below 1
    */
-  private static final Complex deriveConstant(ComplexTimeFunction modelFunction, int termToSolveFor,
-      int iterations) {
+  public FourierSeriesSpinners(ComplexTimeFunction goal, int seriesLength, int iterations,
+      Derivation derivation, int parallelism) {
 
-    double radiansPerCycle = 2 * Math.PI * termToSolveFor;
+    if (seriesLength < 1) {
+      throw new IllegalArgumentException("Series length must be at least 1, got " + seriesLength);
+    }
+    // Analytic derivation ignores the iteration count
+    if (derivation != Derivation.ANALYTIC && iterations < 1) {
+      throw new IllegalArgumentException("Iterations must be at least 1, got " + iterations);
+    }
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1, got " + parallelism);
+    }
+
+    SeriesBuildEvent event = new SeriesBuildEvent();
+    event.begin();
+
+    genSpinners(goal, seriesLength, iterations, derivation, parallelism);
+
+    event.end();
+    if (event.shouldCommit()) {
+      event.seriesLength = seriesLength;
+      event.iterations = iterations;
+      event.derivation = derivation.name();
+      event.parallelism = parallelism;
+      event.commit();
+    }
+
+  }
+
+  /**
+   * Constructs a Fourier series from constants derived earlier, such as those mapped back in by a
+   * <code>CoefficientStore</code>. The spinners follow the usual [0, 1, -1, 2, -2, ...] order.
+   *
+   * @param amplitudes the real component of each spinner's constant in series order, followed by
+   *                   the imaginary components in the same order. Every remaining value is read
+   * @param goal       the function the constants were derived from, for terms added later
+   * @param iterations the number of iterations the constants were derived with
+   * @param derivation the strategy the constants were derived with
+   */
+  FourierSeriesSpinners(DoubleBuffer amplitudes, ComplexTimeFunction goal, int iterations,
+      Derivation derivation) {
+
+    allocate(amplitudes.remaining() / 2);
+
+    for (int pos = 0; pos < size; pos++) {
+      frequency[pos] = termAt(pos);
+    }
+
+    amplitudes.get(amplitudeReal).get(amplitudeImg);
+
+    this.goal = goal;
+    this.iterations = iterations;
+    this.derivation = derivation;
+    this.parallelism = 1;
 
-    // Calculate ∫[0,1] (f(t) * e^Complex(0,-radians*t))
-    return integrate(iterations, time ->
-        modelFunction.solveAtTime(time)
-            .getMult(Complex.eExponent(new Complex(0, -radiansPerCycle * time)))
-    );
+    solve(0);
 
   }
 
   /**
-   * Perform an approximation of integration via summation on this Complex. In particular, the
-   * approximated integral is over the domain [0, 1].
+   * Derives the constant of the nth spinner in a Fourier series from the samples of its goal
+   * function in the series' grid, using one summation step per sample.
+   * <p>
+   * <b>Assumption:</b> goal function's domain is [0, 1]
    *
-   * @param interations the number of iterations used. More iterations = more accuracy
-   *                    approximation
-   * @param perstep     the function to integrate. Must take a time value in domain [0, 1] as input
-   * @return approximation of the perstep function's integral on the domain [0, 1]
+   * @param termToSolveFor the N value of the spinner to solve for
+   * @param out            receives the real and imaginary components of the constant, encoding the
+   *                       spinner's base position and length
    */
-  private static Complex integrate(int interations, Function<Double, Complex> perstep) {
-    double deltaT = 1.0 / interations;
-    return summation(interations, iteration -> perstep.apply(iteration * deltaT).getMult(deltaT));
+  private void deriveConstant(int termToSolveFor, double[] out) {
+
+    double radiansPerCycle = 2 * Math.PI * termToSolveFor, deltaT = 1.0 / iterations;
+
+    // Approximate ∫[0,1] (f(t) * e^Complex(0,-radians*t)) by a sum over the sampled times
+    summation(iterations, (i, acc) -> {
+
+      double time = i * deltaT;
+      double cos = Math.cos(radiansPerCycle * time), sin = -Math.sin(radiansPerCycle * time);
+
+      acc[0] += gridReal[i] * cos - gridImg[i] * sin;
+      acc[1] += gridReal[i] * sin + gridImg[i] * cos;
+
+    }, out);
+
+    out[0] *= deltaT;
+    out[1] *= deltaT;
+
   }
 
   /**
@@ -112,14 +276,214 @@ public class FourierSeriesSpinners implements Drawable {
    *
    * @param n       the number of iterations
    * @param perstep the function to be summed
-   * @return the sum
+   * @param out     receives the real and imaginary components of the sum
    */
-  private static Complex summation(int n, Function<Integer, Complex> perstep) {
-    Complex ret = new Complex(0, 0);
-		for (int i = 0; i < n; i++) {
-			ret.add(perstep.apply(i));
-		}
-    return ret;
+  private static void summation(int n, SummationStep perstep, double[] out) {
+    out[0] = 0;
+    out[1] = 0;
+    for (int i = 0; i < n; i++) {
+      perstep.accumulate(i, out);
+    }
+  }
+
+  /**
+   * A single step of a summation. Adds the real and imaginary components of the summed function's
+   * value at the given index into the accumulator.
+   */
+  @FunctionalInterface
+  private interface SummationStep {
+
+    void accumulate(int index, double[] acc);
+
+  }
+
+  /**
+   * Samples the goal function at each of the points the integrals visit, into the series' grid.
+   */
+  private void sampleGrid() {
+
+    double deltaT = 1.0 / iterations;
+    double[] real = new double[iterations], img = new double[iterations];
+
+    forEach(iterations, parallelism, (i, sample) -> {
+      goal.solveAtTime(i * deltaT, sample);
+      real[i] = sample[0];
+      img[i] = sample[1];
+    });
+
+    gridReal = real;
+    gridImg = img;
+
+  }
+
+  /**
+   * Derives the constants of the spinners in the given range of positions, from the series' goal.
+   * Sampling the goal, or transforming the samples, is done at most once per series, however many
+   * ranges are derived.
+   *
+   * @param start the first position to derive
+   * @param end   the position after the last one to derive
+   */
+  private void deriveTerms(int start, int end) {
+
+    switch (derivation) {
+
+      case QUADRATURE:
+
+        if (gridReal == null) {
+          sampleGrid();
+        }
+
+        // Every term is independent, and each writes only to its own slot in the series
+        forEach(end - start, parallelism, (i, scratch) -> {
+          deriveConstant(termAt(start + i), scratch);
+          amplitudeReal[start + i] = scratch[0];
+          amplitudeImg[start + i] = scratch[1];
+        });
+
+        break;
+
+      case FFT:
+
+        if (gridReal == null) {
+          sampleGrid();
+          FastFourierTransform.transform(gridReal, gridImg);
+        }
+
+        // The transform is periodic, so term n lives in bin n mod iterations
+        double deltaT = 1.0 / iterations;
+        for (int pos = start; pos < end; pos++) {
+          int bin = Math.floorMod(termAt(pos), iterations);
+          amplitudeReal[pos] = gridReal[bin] * deltaT;
+          amplitudeImg[pos] = gridImg[bin] * deltaT;
+        }
+
+        break;
+
+      case ANALYTIC:
+
+        ShapeFunction shape = (ShapeFunction) goal;
+        forEach(end - start, parallelism, (i, scratch) -> {
+          shape.fourierCoefficient(termAt(start + i), scratch);
+          amplitudeReal[start + i] = scratch[0];
+          amplitudeImg[start + i] = scratch[1];
+        });
+
+        break;
+
+      default:
+
+        throw new IllegalStateException();
+
+    }
+
+  }
+
+  /**
+   * Finds the N value of the spinner at the given position in a series. Series are ordered such
+   * that the N value of the spinners in the array goes [0, 1, -1, 2, -2, 3, -3, ...]
+   * <p>
+   * This is simply a more visual appealing look to the series, as well as giving a better
+   * intuitive sense of why each spinner has the settings it does just by looking at the output.
+   * (ex. 0 is at the function's average value; oblivious in this ordering.)
+   *
+   * @param position the position of the spinner in the series
+   * @return the N value of that spinner
+   */
+  private static int termAt(int position) {
+    int magnitude = (position + 1) / 2;
+    return position % 2 == 1 ? magnitude : -magnitude;
+  }
+
+  /**
+   * Runs the given action once for every index in [0, count). With a parallelism above 1, the
+   * indices are split across a <code>ForkJoinPool</code> of that size, so the action must only
+   * write to state owned by its own index. Each run of consecutive indices shares one scratch
+   * buffer, which the action may freely overwrite.
+   *
+   * @param count       the number of indices
+   * @param parallelism the number of threads to use
+   * @param action      the action to run for each index
+   */
+  private static void forEach(int count, int parallelism, IndexStep action) {
+
+    if (parallelism == 1) {
+      double[] scratch = new double[2];
+      for (int i = 0; i < count; i++) {
+        action.accept(i, scratch);
+      }
+      return;
+    }
+
+    // A few chunks per thread lets work stealing even out uneven costs per index
+    int threshold = Math.max(1, count / (parallelism * 4));
+
+    pool(parallelism).invoke(new IndexRange(0, count, threshold, action));
+
+  }
+
+  /**
+   * Gets a pool with the given parallelism, shared by every series. The common pool is used when
+   * its parallelism matches, and otherwise one pool is kept per parallelism level. Pools' workers
+   * are daemons which exit after idling, so a pool that is no longer used holds no threads.
+   *
+   * @param parallelism the parallelism level
+   * @return the pool
+   */
+  private static ForkJoinPool pool(int parallelism) {
+
+    if (parallelism == ForkJoinPool.getCommonPoolParallelism()) {
+      return ForkJoinPool.commonPool();
+    }
+
+    return POOLS.computeIfAbsent(parallelism, ForkJoinPool::new);
+
+  }
+
+  /**
+   * Fork/join task which recursively halves a range of indices until it is small enough to run
+   * directly. Only serializable because every <code>ForkJoinTask</code> is, and never serialized.
+   */
+  @SuppressWarnings("serial")
+  private static class IndexRange extends RecursiveAction {
+
+    private final int start, end, threshold;
+    private final IndexStep action;
+
+    IndexRange(int start, int end, int threshold, IndexStep action) {
+      this.start = start;
+      this.end = end;
+      this.threshold = threshold;
+      this.action = action;
+    }
+
+    @Override
+    protected void compute() {
+
+      if (end - start <= threshold) {
+        double[] scratch = new double[2];
+        for (int i = start; i < end; i++) {
+          action.accept(i, scratch);
+        }
+        return;
+      }
+
+      int mid = (start + end) >>> 1;
+      invokeAll(new IndexRange(start, mid, threshold, action),
+          new IndexRange(mid, end, threshold, action));
+
+    }
+
+  }
+
+  /**
+   * An action run for a single index by <code>forEach</code>.
+   */
+  @FunctionalInterface
+  private interface IndexStep {
+
+    void accept(int index, double[] scratch);
+
   }
 
   /**
@@ -130,58 +494,284 @@ public class FourierSeriesSpinners implements Drawable {
    * @param goal         the function to approximate
    * @param seriesLength the length of Fourier Series (and thus, the number of spinners)
    * @param iterations   the number of iterations used to approximate integrations
+   * @param derivation   the strategy used to derive the spinners' constants
+   * @param parallelism  the number of threads used to derive the constants
    */
-  private void genSpinners(ComplexTimeFunction goal, int seriesLength, int iterations) {
+  private void genSpinners(ComplexTimeFunction goal, int seriesLength, int iterations,
+      Derivation derivation, int parallelism) {
 
-    series = new Spinner[seriesLength];
-    Spinner[] temp = new Spinner[seriesLength];
+    allocate(seriesLength);
 
-    // Generates the series such that the N value of the spinners in the array goes
-    // [-seriesLength, ..., 0, ..., seriesLength - 1]
-    // This order is simpler to generate, since the N value that must be provided to
-    // deriveConstant and the Spinner object are advanced through linearly.
+    for (int pos = 0; pos < seriesLength; pos++) {
+      frequency[pos] = termAt(pos);
+    }
 
-    for (int i = 0; i < seriesLength; i++) {
+    if (derivation == Derivation.ANALYTIC && !(goal instanceof ShapeFunction)) {
+      throw new IllegalArgumentException(
+          "Analytic derivation requires a ShapeFunction, got " + goal.getClass().getName());
+    }
+
+    this.goal = goal;
+    this.iterations = iterations;
+    this.derivation = derivation;
+    this.parallelism = parallelism;
+
+    deriveTerms(0, seriesLength);
+
+    solve(0);
+
+  }
+
+  /**
+   * Allocates the packed storage for a series of the given length.
+   *
+   * @param seriesLength the number of spinners in the series
+   */
+  private void allocate(int seriesLength) {
+    amplitudeReal = new double[seriesLength];
+    amplitudeImg = new double[seriesLength];
+    frequency = new double[seriesLength];
+    endpointReal = new double[seriesLength];
+    endpointImg = new double[seriesLength];
+    labels = new String[seriesLength];
+    size = derivedSize = seriesLength;
+  }
+
+  /**
+   * Grows the packed storage so it can hold a series of the given length, at least doubling its
+   * room so a series grown a few terms at a time is only copied a logarithmic number of times.
+   *
+   * @param seriesLength the number of spinners the storage must hold
+   */
+  private void ensureCapacity(int seriesLength) {
+
+    if (seriesLength <= frequency.length) {
+      return;
+    }
+
+    int capacity = Math.max(seriesLength, frequency.length * 2);
+
+    amplitudeReal = Arrays.copyOf(amplitudeReal, capacity);
+    amplitudeImg = Arrays.copyOf(amplitudeImg, capacity);
+    frequency = Arrays.copyOf(frequency, capacity);
+    endpointReal = Arrays.copyOf(endpointReal, capacity);
+    endpointImg = Arrays.copyOf(endpointImg, capacity);
+
+    if (phasorReal != null) {
+      phasorReal = Arrays.copyOf(phasorReal, capacity);
+      phasorImg = Arrays.copyOf(phasorImg, capacity);
+      rotationReal = Arrays.copyOf(rotationReal, capacity);
+      rotationImg = Arrays.copyOf(rotationImg, capacity);
+    }
+
+  }
+
+  /**
+   * Calculates the solution to the Fourier Series represented by this object at the current time,
+   * storing the endpoint of every spinner along the way.
+   *
+   * @param from the first spinner to solve. Every earlier spinner's endpoint must already be solved
+   */
+  private void solve(int from) {
+
+    double radians = 2 * Math.PI * time;
+    double real = from > 0 ? endpointReal[from - 1] : 0, img = from > 0 ? endpointImg[from - 1] : 0;
+
+    for (int i = from; i < size; i++) {
+      double cos = Math.cos(frequency[i] * radians), sin = Math.sin(frequency[i] * radians);
+      real += amplitudeReal[i] * cos - amplitudeImg[i] * sin;
+      img += amplitudeReal[i] * sin + amplitudeImg[i] * cos;
+      endpointReal[i] = real;
+      endpointImg[i] = img;
+    }
+
+  }
+
+  /**
+   * Re-solves spinners directly at the current time, storing each spinner's position as the
+   * starting phasor for future steps.
+   *
+   * @param from the first spinner to solve. Every earlier spinner's endpoint must already be solved
+   */
+  private void anchorPhasors(int from) {
+
+    double radians = 2 * Math.PI * time;
+    double real = from > 0 ? endpointReal[from - 1] : 0, img = from > 0 ? endpointImg[from - 1] : 0;
+
+    for (int i = from; i < size; i++) {
+      double cos = Math.cos(frequency[i] * radians), sin = Math.sin(frequency[i] * radians);
+      phasorReal[i] = amplitudeReal[i] * cos - amplitudeImg[i] * sin;
+      phasorImg[i] = amplitudeReal[i] * sin + amplitudeImg[i] * cos;
+      real += phasorReal[i];
+      img += phasorImg[i];
+      endpointReal[i] = real;
+      endpointImg[i] = img;
+    }
+
+  }
+
+  /**
+   * Advances every spinner by one step by rotating its position, rather than re-solving it.
+   */
+  private void advancePhasors() {
+
+    double real = 0, img = 0;
+
+    for (int i = 0; i < size; i++) {
+      double r = phasorReal[i] * rotationReal[i] - phasorImg[i] * rotationImg[i];
+      double im = phasorReal[i] * rotationImg[i] + phasorImg[i] * rotationReal[i];
+      phasorReal[i] = r;
+      phasorImg[i] = im;
+      real += r;
+      img += im;
+      endpointReal[i] = real;
+      endpointImg[i] = img;
+    }
+
+    stepsSinceAnchor++;
+
+  }
+
+  /**
+   * Enables phasor stepping. While enabled, any <code>setTime</code> that moves the time forward by
+   * exactly one step advances each spinner by multiplying its endpoint with a precomputed unit
+   * rotation, instead of evaluating sines and cosines. Every other change in time, and every
+   * <code>reanchorInterval</code>th step, solves the spinners directly to keep rounding drift
+   * bounded.
+   *
+   * @param stepSize         the fixed amount of time advanced per step
+   * @param reanchorInterval the maximum number of steps taken between direct solutions
+   */
+  public void enablePhasorStepping(double stepSize, int reanchorInterval) {
+
+    if (stepSize <= 0 || reanchorInterval < 1) {
+      throw new IllegalArgumentException("Invalid phasor stepping settings: step of " + stepSize
+          + ", re-anchored every " + reanchorInterval + " steps");
+    }
+
+    this.stepSize = stepSize;
+    this.reanchorInterval = reanchorInterval;
+
+    phasorReal = new double[frequency.length];
+    phasorImg = new double[frequency.length];
+    rotationReal = new double[frequency.length];
+    rotationImg = new double[frequency.length];
+
+    for (int i = 0; i < size; i++) {
+      rotationReal[i] = Math.cos(2 * Math.PI * frequency[i] * stepSize);
+      rotationImg[i] = Math.sin(2 * Math.PI * frequency[i] * stepSize);
+    }
+
+    anchorPhasors(0);
+    stepsSinceAnchor = 0;
+
+  }
+
+  /**
+   * Disables phasor stepping, returning to solving every spinner directly on each
+   * <code>setTime</code>.
+   */
+  public void disablePhasorStepping() {
 
-      int spinnerID = i - seriesLength / 2;
-      temp[i] = new Spinner(deriveConstant(goal, spinnerID, iterations), spinnerID);
+    phasorReal = phasorImg = rotationReal = rotationImg = null;
+    solve(0);
 
+  }
+
+  /**
+   * Adds spinners to the high-frequency end of this series, continuing its [0, 1, -1, 2, -2, ...]
+   * order. Only the new spinners' constants are derived, the same way the series' were, from the
+   * goal function's samples, which are taken once and then kept with the series. The new spinners
+   * are solved at the current time, and every existing spinner is left as it is, so this costs
+   * O(ΔN) rather than rebuilding the series.
+   *
+   * @param count the number of spinners to add
+   * @throws IllegalStateException if the series was not derived from a goal function
+   */
+  public void addTerms(int count) {
+
+    if (count < 0) {
+      throw new IllegalArgumentException("Cannot add " + count + " terms");
+    }
+    if (goal == null) {
+      throw new IllegalStateException("Series was not derived from a goal function");
     }
 
-    // Re-orders the series such that the N value of the spinners in the array goes
-    // [0, 1, -1, 2, -2, 3, -3, ...]
-    // This is simply a more visual appealing look to the series, as well as giving
-    // a better intuitive sense of why each spinner has the settings it does just by
-    // looking at the output.
-    // (ex. 0 is at the function's average value; oblivious in this ordering.)
+    int start = size;
+    ensureCapacity(start + count);
+    size = start + count;
 
-    // Spinner with N of 0 is halfway through the original array.
-    series[0] = temp[seriesLength / 2];
+    for (int pos = start; pos < size; pos++) {
+      frequency[pos] = termAt(pos);
+    }
 
-    // Last spinner must be manually assigned, since it isn't in a pair.
-    series[seriesLength - 1] = temp[seriesLength - 1];
+    if (size > derivedSize) {
+      deriveTerms(Math.max(start, derivedSize), size);
+      derivedSize = size;
+    }
+
+    if (phasorReal == null) {
+      solve(start);
+    } else {
+      for (int i = start; i < size; i++) {
+        rotationReal[i] = Math.cos(2 * Math.PI * frequency[i] * stepSize);
+        rotationImg[i] = Math.sin(2 * Math.PI * frequency[i] * stepSize);
+      }
+      anchorPhasors(start);
+    }
+
+  }
+
+  /**
+   * Removes spinners from the high-frequency end of this series. Every remaining spinner is left as
+   * it is, and the removed spinners' constants are kept, so adding them back derives nothing.
+   *
+   * @param count the number of spinners to remove
+   */
+  public void removeTerms(int count) {
 
-    // temp[seriesLength / 2 + 1] = series[1],
-    // temp[seriesLength / 2 - 1] = series[2],
-    // temp[seriesLength / 2 + 2] = series[3],
-    // temp[seriesLength / 2 - 2] = series[4],
-    // etc.
-    for (int pos = 1; pos < seriesLength / 2; ++pos) {
-      series[pos * 2 - 1] = temp[seriesLength / 2 + pos];
-      series[pos * 2] = temp[seriesLength / 2 - pos];
+    if (count < 0 || count > size) {
+      throw new IllegalArgumentException(
+          "Cannot remove " + count + " terms from a series of " + size);
     }
 
-    currentSolution = solve();
+    size -= count;
 
   }
 
   /**
-   * Calculates the solution to the Fourier Series represented by this object at the current time.
+   * Solves this Fourier series at K uniformly spaced times, t = k / K for k in [0, K), using a
+   * single inverse FFT. This costs O(K log K) rather than the O(K * N) of calling
+   * <code>setTime</code> K times, and does not change the series' current time.
+   * <br><br>
+   * Spinners whose N values are congruent mod K land in the same bin of the transform. Since every
+   * sample time is a multiple of 1 / K, those spinners are indistinguishable at the sampled times
+   * and the results remain exact for any K.
    *
-   * @return the solution at the current time
+   * @param real receives the real component of the solution at each time. Its length is K
+   * @param img  receives the imaginary component of the solution at each time. Its length is K
    */
-  private Complex solve() {
-    return summation(series.length, i -> series[i].solveAtTime(time));
+  public void solveUniform(double[] real, double[] img) {
+
+    if (real.length != img.length) {
+      throw new IllegalArgumentException("Mismatched output lengths: "
+          + real.length + " and " + img.length);
+    }
+
+    int samples = real.length;
+
+    Arrays.fill(real, 0);
+    Arrays.fill(img, 0);
+
+    for (int i = 0; i < size; i++) {
+      int bin = (int) Math.floorMod((long) frequency[i], (long) samples);
+      real[bin] += amplitudeReal[i];
+      img[bin] += amplitudeImg[i];
+    }
+
+    // x[k] = Σ c[n] * e^Complex(0, 2π * n * k / K)
+    FastFourierTransform.inverseTransform(real, img);
+
   }
 
   public void setPenSize(double size) {
@@ -191,12 +781,43 @@ public class FourierSeriesSpinners implements Drawable {
   }
 
   public void setTime(double t) {
+
+    double expected = this.time + stepSize;
     this.time = t;
-    currentSolution = solve();
+
+    if (phasorReal == null) {
+      solve(0);
+    } else if (stepsSinceAnchor < reanchorInterval
+        && Math.abs(t - expected) <= stepSize * 1e-6) {
+      advancePhasors();
+    } else {
+      anchorPhasors(0);
+      stepsSinceAnchor = 0;
+    }
+
   }
 
   @Override
   public void draw(Graphics2D win) {
+    draw(win, endpointReal, endpointImg, size);
+  }
+
+  /**
+   * Draws this series with its spinners ending at the given endpoints, such as those captured
+   * earlier by <code>copyEndpoints</code>, rather than at the current time. One spinner is drawn
+   * per endpoint, however the series was resized since they were captured. Nothing that adding or
+   * removing terms changes is read, so this may be called on another thread than the one resizing
+   * the series, as long as the endpoints were handed over safely.
+   *
+   * @param win          the graphics to draw into
+   * @param endpointReal the real components of each spinner's endpoint, in series order
+   * @param endpointImg  the imaginary components of each spinner's endpoint, in series order
+   */
+  public void draw(Graphics2D win, double[] endpointReal, double[] endpointImg) {
+    draw(win, endpointReal, endpointImg, endpointReal.length);
+  }
+
+  private void draw(Graphics2D win, double[] endpointReal, double[] endpointImg, int count) {
 
     AffineTransform oldTrans = win.getTransform();
 
@@ -208,27 +829,31 @@ public class FourierSeriesSpinners implements Drawable {
 
     win.setFont(font);
 
+    if (labels.length < count) {
+      labels = Arrays.copyOf(labels, Math.max(count, labels.length * 2));
+    }
+
     // Draw each spinner in the series
-    for (int i = 0; i < series.length; i++) {
+    for (int i = 0; i < count; i++) {
 
-      // Calculate the spinner's current target position.
-      Spinner spinner = series[i];
-      Complex solution = spinner.solveAtTime(time);
+      // The spinner's current target position, relative to the previous spinner's endpoint.
+      double real = endpointReal[i] - (i > 0 ? endpointReal[i - 1] : 0);
+      double img = endpointImg[i] - (i > 0 ? endpointImg[i - 1] : 0);
 
       // SPINNER BODY
       // Draw a line from the last spinner's endpoint to the current spinner's endpoint
       win.setColor(Color.BLACK);
-      draw.setLine(0, 0, solution.getReal(), solution.getImaginary());
+      draw.setLine(0, 0, real, img);
 			if (i > 0) {
 				win.draw(draw);
 			}
 
       // SPINNER HEAD
       // Move to the endpoint of the current spinner
-      win.translate(solution.getReal(), solution.getImaginary());
+      win.translate(real, img);
 
       // Draw a dot to represent the head of the current spinner
-			if (i == series.length - 1) {
+			if (i == count - 1) {
 				win.setColor(Color.RED);
 			} else {
 				win.setColor(Color.ORANGE);
@@ -238,9 +863,12 @@ public class FourierSeriesSpinners implements Drawable {
       // SPINNER LABEL
       // Draw a textual label for the spinner
       win.setColor(Color.BLACK);
-			if (!hideSmallSpinners || hideSmallSpinners && solution.getLength() > 1
-					|| i == series.length - 1) {
-				win.drawString(Integer.toString(i),
+			if (!hideSmallSpinners || hideSmallSpinners && Math.hypot(real, img) > 1
+					|| i == count - 1) {
+				if (labels[i] == null) {
+					labels[i] = Integer.toString(i);
+				}
+				win.drawString(labels[i],
 						(int) (Math.cos(Math.PI / 4 * i) * font.getSize() * 0.75 - font.getSize() / 4),
 						(int) (-Math.sin(Math.PI / 4 * i) * font.getSize() + font.getSize() / 2));
 			}
@@ -253,15 +881,40 @@ public class FourierSeriesSpinners implements Drawable {
   }
 
   public void drawCurrentPoint(Graphics2D win) {
+    drawPoint(win, getSolutionReal(), getSolutionImaginary());
+  }
+
+  /**
+   * Draws the pen used by <code>drawCurrentPoint</code> at the given point, such as a solution
+   * captured earlier.
+   *
+   * @param win  the graphics to draw into
+   * @param real the real component of the point
+   * @param img  the imaginary component of the point
+   */
+  public void drawPoint(Graphics2D win, double real, double img) {
 
-    double x = currentSolution.getReal(), y = currentSolution.getImaginary();
-    win.translate(x, y);
+    win.translate(real, img);
 
     pen.setFrame(-penSize / 8, -penSize / 8, penSize / 4, penSize / 4);
     win.fill(pen);
 
   }
 
+  /**
+   * Copies the endpoint of every spinner at the current time, in series order. The last endpoint is
+   * the current solution.
+   *
+   * @param real receives the real components. Must hold at least <code>seriesLength()</code>
+   *             values
+   * @param img  receives the imaginary components. Must hold at least <code>seriesLength()</code>
+   *             values
+   */
+  public void copyEndpoints(double[] real, double[] img) {
+    System.arraycopy(endpointReal, 0, real, 0, size);
+    System.arraycopy(endpointImg, 0, img, 0, size);
+  }
+
   /**
    * Solves the Fourier series this class contains at the last
    * <code>setTime()</code>'s value. This is equivalent to finding the endpoint of
@@ -270,11 +923,53 @@ public class FourierSeriesSpinners implements Drawable {
    * @return the solution to the Fourier series at the current time
    */
   public Complex getSolution() {
-    return currentSolution;
+    return new Complex(getSolutionReal(), getSolutionImaginary());
+  }
+
+  /**
+   * Gets the real component of <code>getSolution()</code>, without creating a
+   * <code>Complex</code>.
+   *
+   * @return the real component of the solution at the current time
+   */
+  public double getSolutionReal() {
+    return size > 0 ? endpointReal[size - 1] : 0;
+  }
+
+  /**
+   * Gets the imaginary component of <code>getSolution()</code>, without creating a
+   * <code>Complex</code>.
+   *
+   * @return the imaginary component of the solution at the current time
+   */
+  public double getSolutionImaginary() {
+    return size > 0 ? endpointImg[size - 1] : 0;
   }
 
   public int seriesLength() {
-    return series.length;
+    return size;
+  }
+
+  /**
+   * Gets the spinner at the given position in this series.
+   *
+   * @param position the position of the spinner, following the series' [0, 1, -1, 2, -2, ...]
+   *                 order
+   * @return a <code>Spinner</code> with the same length and speed as the one in this series
+   */
+  public Spinner getSpinner(int position) {
+    return new Spinner(new Complex(amplitudeReal[position], amplitudeImg[position]),
+        (int) frequency[position]);
+  }
+
+  /**
+   * Writes the constant of every spinner in the layout read by the <code>DoubleBuffer</code>
+   * constructor: the real components in series order, then the imaginary components.
+   *
+   * @param out receives the constants. Must have room for <code>2 * seriesLength()</code> values
+   */
+  void putAmplitudes(DoubleBuffer out) {
+    out.put(amplitudeReal, 0, size).put(amplitudeImg, 0, size);
   }
 
   public void hideSmallSpinners(boolean set) {
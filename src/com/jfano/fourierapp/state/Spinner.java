@@ -41,4 +41,15 @@ public class Spinner implements ComplexTimeFunction {
 
   }
 
+  @Override
+  public void solveAtTime(double time, double[] out) {
+
+    double angle = basePow.getImaginary() * time;
+    double cos = Math.cos(angle), sin = Math.sin(angle);
+
+    out[0] = length.getReal() * cos - length.getImaginary() * sin;
+    out[1] = length.getReal() * sin + length.getImaginary() * cos;
+
+  }
+
 }
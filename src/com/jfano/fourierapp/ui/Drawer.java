@@ -1,12 +1,21 @@
 package com.jfano.fourierapp.ui;
 
+import com.jfano.fourierapp.general.AcceleratedLayer;
+import com.jfano.fourierapp.general.CachedLayer;
 import com.jfano.fourierapp.general.Counter;
 import com.jfano.fourierapp.general.Driver;
-import com.jfano.fourierapp.general.TextTools;
-import com.jfano.fourierapp.math.Complex;
+import com.jfano.fourierapp.general.FrameHandoff;
+import com.jfano.fourierapp.general.GlyphCache;
+import com.jfano.fourierapp.general.OfflineRenderer;
+import com.jfano.fourierapp.general.ParallelOfflineRenderer;
+import com.jfano.fourierapp.general.PhaseTimer;
+import com.jfano.fourierapp.general.Seekable;
 import com.jfano.fourierapp.math.functions.ComplexTimeFunction;
 import com.jfano.fourierapp.math.functions.ShapeFunction;
+import com.jfano.fourierapp.path.CompiledShapeCache;
+import com.jfano.fourierapp.state.CoefficientStore;
 import com.jfano.fourierapp.state.FourierSeriesSpinners;
+import com.jfano.fourierapp.state.FourierSeriesSpinners.Derivation;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Font;
@@ -15,33 +24,95 @@ import java.awt.RenderingHints;
 import java.awt.Stroke;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Ellipse2D;
-import java.awt.image.BufferedImage;
+import java.awt.event.KeyEvent;
+import java.awt.geom.Path2D;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 
-public class Drawer extends Driver {
+public class Drawer extends Driver implements Seekable {
+
+  /**
+   * How the path of the series is traced.
+   */
+  public enum TraceMode {
+
+    /**
+     * Fill a dot at every step. Gaps open up between dots when the series moves quickly.
+     */
+    DOTS,
+
+    /**
+     * Stroke one connected line through every step of a frame.
+     */
+    POLYLINE
+
+  }
 
   // Drawer Configuration
   private static final int
+      FRAMES_PER_SECOND = 60,
+      UPDATES_PER_SECOND = 100,
       STEPS_PER_FRAME = 18,
       STEPS_PER_CYCLE = 9000,
+      PHASOR_REANCHOR_INTERVAL = 1000,
       INTEGRATION_ACCURACY = 800,
       WAVE_TRACKER_WIDTH = 512,
       WAVE_TRACKER_COUNT = 2,
-      WAVE_TRACKER_BUFFER_FRACTION = 16;
+      WAVE_TRACKER_BUFFER_FRACTION = 16,
+      HANDOFF_CAPACITY = 64,
+      HANDOFF_WAIT_MILLIS = 10,
+      TEXT_CACHE_SIZE = 32,
+      SPINNER_STEP = 2;
+  // Add and remove SPINNER_STEP spinners per press
+  private static final int
+      MORE_SPINNERS_KEY = KeyEvent.VK_UP,
+      FEWER_SPINNERS_KEY = KeyEvent.VK_DOWN;
 
   // Drawables
   private final double ZOOM_FACTOR = 2;
   private final Stroke ZOOM_COMPENSATED = new BasicStroke(4 / (float) ZOOM_FACTOR);
+  // As wide as the dots traced by the spinners' pen
+  private final Stroke TRACE_STROKE = new BasicStroke(3 / (float) ZOOM_FACTOR,
+      BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
   private final Font BASIC = new Font("TimesNewRoman", Font.PLAIN, 20), BOLD = new Font(
       "TimesNewRoman", Font.BOLD, 20);
   private final Ellipse2D PEN = new Ellipse2D.Double();
+  private final Path2D TRACE = new Path2D.Double();
+  // Only used by the thread that draws
+  private final GlyphCache textCache = new GlyphCache(TEXT_CACHE_SIZE);
+  // Dividers, headings, legends and the settings box, which only change with the spinner count
+  private final CachedLayer chrome;
 
   private final Counter time = new Counter(STEPS_PER_CYCLE);
   private final ComplexTimeFunction func;
   private final FourierSeriesSpinners spinners;
-  private final BufferedImage pathTraceBuffer, pathGoalBuffer;
+  private final AcceleratedLayer pathTrace, pathGoal;
   private final ScrollingTrace xWaveTracker, yWaveTracker, xIdealTracker, yIdealTracker;
   private final int mainWindowWidth;
+  // The goal function at each step of the cycle
+  private final double[] goalReal = new double[STEPS_PER_CYCLE], goalImg =
+      new double[STEPS_PER_CYCLE];
+  // The series at each step of the cycle, sampled into new arrays whenever it is resized. Only
+  // touched by the thread performing updates, which hands them to the thread that draws in frames.
+  private double[] seriesReal, seriesImg;
+  private final FrameHandoff<Frame> handoff = new FrameHandoff<>(HANDOFF_CAPACITY);
+  // The newest frame applied to the traces, and how many have been. Only touched by the thread
+  // that draws.
+  private Frame latest;
+  private long updatesApplied;
+  private TraceMode traceMode = TraceMode.POLYLINE;
+  // Only touched by the thread performing updates
+  private boolean moreSpinnersHeld, fewerSpinnersHeld;
+
+  private final PhaseTimer.Phase
+      setTimePhase = getPhaseTimer().phase("setTime"),
+      tracePhase = getPhaseTimer().phase("trace"),
+      trackersPhase = getPhaseTimer().phase("trackers"),
+      blitPhase = getPhaseTimer().phase("blit"),
+      chromePhase = getPhaseTimer().phase("chrome");
 
   private double
       maxReal = -Double.MAX_VALUE,
@@ -50,19 +121,36 @@ public class Drawer extends Driver {
       minImg = Double.MAX_VALUE;
 
   public Drawer() throws IOException {
-    super(60, 60, "Fourier Series Generator", true);
+    this(false);
+  }
+
+  /**
+   * Creates a drawer for the sample shape.
+   *
+   * @param arcLengthTiming whether the shape is traced at a constant speed along its length, rather
+   *                        than spending equal time on each of its segments
+   */
+  public Drawer(boolean arcLengthTiming) throws IOException {
+    super(60, 60, FRAMES_PER_SECOND, UPDATES_PER_SECOND, "Fourier Series Generator", true);
 
     this.width = 512 * 5 / 2;
     this.height = 512 * 3 / 2;
     this.mainWindowWidth = width - WAVE_TRACKER_WIDTH;
+    this.chrome = new CachedLayer(width, height, this::paintChrome);
 
-    func = new ShapeFunction("/sample_shapes/H.svg");
+    ShapeFunction shape = new ShapeFunction("/sample_shapes/H.svg");
+    shape.setArcLengthTiming(arcLengthTiming);
+    func = shape;
 
     final int seriesLength = 20;
     assert seriesLength % 2 == 0 : "Length not a multiple of 2";
 
-    spinners = new FourierSeriesSpinners(func, seriesLength, INTEGRATION_ACCURACY);
+    // Derived once per shape and length, then mapped back in on later launches
+    spinners = CoefficientStore.getDefault().load(shape.contentHash(), func, seriesLength,
+        INTEGRATION_ACCURACY, Derivation.FFT);
     spinners.setPenSize(12 / ZOOM_FACTOR);
+    spinners.enablePhasorStepping(1.0 / STEPS_PER_CYCLE, PHASOR_REANCHOR_INTERVAL);
+    sampleSeries();
 
     xWaveTracker = new ScrollingTrace(STEPS_PER_CYCLE / STEPS_PER_FRAME,
         this.height / WAVE_TRACKER_COUNT);
@@ -73,52 +161,164 @@ public class Drawer extends Driver {
     yIdealTracker = new ScrollingTrace(STEPS_PER_CYCLE / STEPS_PER_FRAME,
         this.height / WAVE_TRACKER_COUNT);
 
-    pathTraceBuffer = new BufferedImage(this.mainWindowWidth, this.height,
-        BufferedImage.TYPE_4BYTE_ABGR);
-    pathGoalBuffer = new BufferedImage(this.mainWindowWidth, this.height,
-        BufferedImage.TYPE_4BYTE_ABGR);
-
-    // Tracing the original function to generate a "goal" path to display
-
-    // Create the traceBuffer to store the trace, so the screen can be cleared without
-    // having to re-trace the whole path every frame
-    Graphics2D traceBuffer = (Graphics2D) pathGoalBuffer.getGraphics();
-    zoom_compensate(traceBuffer);
-    traceBuffer.setColor(Color.GREEN);
-
-    // Perform the trace, storing results into the traceBuffer.
+    // Sampling the original function to generate a "goal" path to display
+    double[] solution = new double[2];
     for (int i = 0; i < STEPS_PER_CYCLE; i++) {
 
-      Complex solution = func.solveAtTime(i / (double) STEPS_PER_CYCLE);
+      func.solveAtTime(i / (double) STEPS_PER_CYCLE, solution);
+      goalReal[i] = solution[0];
+      goalImg[i] = solution[1];
 
-      if (maxReal < solution.getReal()) {
-        maxReal = solution.getReal();
+      if (maxReal < solution[0]) {
+        maxReal = solution[0];
       }
-      if (minReal > solution.getReal()) {
-        minReal = solution.getReal();
+      if (minReal > solution[0]) {
+        minReal = solution[0];
       }
-      if (maxImg < solution.getImaginary()) {
-        maxImg = solution.getImaginary();
+      if (maxImg < solution[1]) {
+        maxImg = solution[1];
       }
-      if (minImg > solution.getImaginary()) {
-        minImg = solution.getImaginary();
+      if (minImg > solution[1]) {
+        minImg = solution[1];
       }
-
-      PEN.setFrame(solution.getReal() - 0.5 * ZOOM_FACTOR,
-          solution.getImaginary() - 0.5 * ZOOM_FACTOR,
-          5 / ZOOM_FACTOR, 5 / ZOOM_FACTOR);
-
-      traceBuffer.fill(PEN);
     }
 
+    // The traces are stored in layers, so the screen can be cleared without having to re-trace
+    // the whole path every frame
+    pathTrace = new AcceleratedLayer(this.mainWindowWidth, this.height, this::retrace);
+    pathGoal = new AcceleratedLayer(this.mainWindowWidth, this.height, this::paintGoal);
+
+    Graphics2D traceBuffer = pathGoal.createGraphics();
+    paintGoal(traceBuffer);
     traceBuffer.dispose();
 
+    latest = snapshot(new double[0], new double[0]);
+
   }
 
+  /**
+   * Runs the drawer in a window, or renders it offline when an output is given.
+   * <br><br>
+   * Rendering offline without a display needs AWT to be headless, which can no longer be chosen
+   * once this class is loaded. Launch through <code>Launcher</code>, which chooses it from the
+   * options, or pass <code>-Djava.awt.headless=true</code> to the JVM.
+   * <br><br>
+   * Options:
+   * <ul>
+   *   <li><code>--threaded</code>: run updates on their own thread</li>
+   *   <li><code>--arc-length</code>: trace the shape at a constant speed along its length</li>
+   *   <li><code>--png DIR</code>: render numbered PNG frames into DIR, without a window</li>
+   *   <li><code>--rgba FILE</code>: render raw RGBA frames into FILE, or standard output if FILE
+   *   is <code>-</code>, without a window</li>
+   *   <li><code>--frames N</code>: the number of frames to render offline. Defaults to one
+   *   cycle</li>
+   *   <li><code>--dots</code>: trace the path with a dot at every step, rather than lines</li>
+   *   <li><code>--threads N</code>: the number of threads rendering offline frames. Defaults to
+   *   1</li>
+   *   <li><code>--timings</code>: time the phases of each frame from the start, rather than once
+   *   toggled with F3, and write them to <code>phase-timings.csv</code> on exit. Ignored when
+   *   rendering offline on more than one thread</li>
+   * </ul>
+   */
   public static void main(String[] args) {
 
+    boolean threaded = false, arcLength = false, timings = false;
+    TraceMode traceMode = TraceMode.POLYLINE;
+    String png = null, rgba = null;
+    int threads = 1;
+    // A cycle takes this many updates, and frames are drawn at FRAMES_PER_SECOND while updates run
+    // at UPDATES_PER_SECOND, so round up to the frames needed to show the whole cycle
+    int frames = (STEPS_PER_CYCLE / STEPS_PER_FRAME * FRAMES_PER_SECOND + UPDATES_PER_SECOND - 1)
+        / UPDATES_PER_SECOND;
+
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--threaded":
+          threaded = true;
+          break;
+        case "--arc-length":
+          arcLength = true;
+          break;
+        case "--png":
+          png = args[++i];
+          break;
+        case "--rgba":
+          rgba = args[++i];
+          break;
+        case "--frames":
+          frames = Integer.parseInt(args[++i]);
+          break;
+        case "--dots":
+          traceMode = TraceMode.DOTS;
+          break;
+        case "--threads":
+          threads = Integer.parseInt(args[++i]);
+          break;
+        case "--timings":
+          timings = true;
+          break;
+        default:
+          System.err.format("Unknown argument: %s%n", args[i]);
+          return;
+      }
+    }
+
+    // The caches carry on without files they fail to read or write, but report why
+    CompiledShapeCache.getDefault()
+        .setFailureHandler(e -> System.err.format("%s%n", e.getMessage()));
+    CoefficientStore.getDefault()
+        .setFailureHandler(e -> System.err.format("%s%n", e.getMessage()));
+
+    final boolean arcLengthTiming = arcLength;
+    final TraceMode mode = traceMode;
+
     try {
-      new Drawer().start();
+
+      if (threads > 1 && (png != null || rgba != null)) {
+
+        ParallelOfflineRenderer<Drawer> renderer = new ParallelOfflineRenderer<>(() -> {
+          Drawer drawer = new Drawer(arcLengthTiming);
+          drawer.setTraceMode(mode);
+          return drawer;
+        }, threads);
+        if (png != null) {
+          renderer.writePngs(Paths.get(png), frames);
+        } else if (rgba.equals("-")) {
+          renderer.writeRgba(System.out, frames);
+        } else {
+          try (OutputStream out = new FileOutputStream(rgba)) {
+            renderer.writeRgba(out, frames);
+          }
+        }
+
+        return;
+
+      }
+
+      Drawer drawer = new Drawer(arcLengthTiming);
+      drawer.setTraceMode(mode);
+      drawer.getPhaseTimer().setEnabled(timings);
+
+      if (png != null) {
+        new OfflineRenderer(drawer).writePngs(Paths.get(png), frames);
+      } else if (rgba != null) {
+        OfflineRenderer renderer = new OfflineRenderer(drawer);
+        if (rgba.equals("-")) {
+          renderer.writeRgba(System.out, frames);
+        } else {
+          try (OutputStream out = new FileOutputStream(rgba)) {
+            renderer.writeRgba(out, frames);
+          }
+        }
+      }
+
+      if (png != null || rgba != null) {
+        drawer.writeTimings();
+      } else {
+        drawer.setDecoupledUpdates(threaded);
+        drawer.start();
+      }
+
     } catch (IOException e) {
       e.printStackTrace();
     }
@@ -128,19 +328,28 @@ public class Drawer extends Driver {
   @Override
   public void draw(Graphics2D win) {
 
-    AffineTransform oldTrans = win.getTransform();
+    // Catch the traces up with every frame simulated since the last draw
+    if (isDecoupled()) {
+      for (Frame frame = handoff.poll(); frame != null; frame = handoff.poll()) {
+        apply(frame);
+      }
+    }
+
+    AffineTransform base = win.getTransform(), oldTrans = base;
 
     // TRACED PATHS
 
-    win.drawImage(pathGoalBuffer, 0, 0, null);
-    win.drawImage(pathTraceBuffer, 0, 0, null);
+    long start = blitPhase.start();
+    pathGoal.draw(win);
+    pathTrace.draw(win);
+    blitPhase.stop(start);
 
     // SPINNERS
 
     zoom_compensate(win);
     win.setColor(Color.BLACK);
 
-    spinners.draw(win);
+    spinners.draw(win, latest.endpointReal, latest.endpointImg);
 
     win.setTransform(oldTrans);
 
@@ -151,34 +360,65 @@ public class Drawer extends Driver {
     // WAVEFORM TRACKERS
     oldTrans = win.getTransform();
     win.scale(-WAVE_TRACKER_WIDTH / (double) xWaveTracker.getWidth(), 1);
-    win.drawImage(xIdealTracker.getTrace(), 0, 0, null);
-    win.drawImage(xWaveTracker.getTrace(), 0, 0, null);
+    xIdealTracker.drawTrace(win);
+    xWaveTracker.drawTrace(win);
     win.setTransform(oldTrans);
 
     win.translate(0, getWaveTrackerHeight());
     oldTrans = win.getTransform();
     win.scale(-WAVE_TRACKER_WIDTH / (double) yWaveTracker.getWidth(), 1);
-    win.drawImage(yIdealTracker.getTrace(), 0, 0, null);
-    win.drawImage(yWaveTracker.getTrace(), 0, 0, null);
+    yIdealTracker.drawTrace(win);
+    yWaveTracker.drawTrace(win);
     win.setTransform(oldTrans);
 
-    win.translate(-WAVE_TRACKER_WIDTH, -getWaveTrackerHeight());
+    win.setTransform(base);
 
     // The most expensive rendering operations are performed without antialiasing for performance.
     win.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
+    start = chromePhase.start();
+    chrome.draw(win);
+    chromePhase.stop(start);
+
+    // The time changes every frame, so is drawn over the settings box rather than cached with it
+    win.setColor(Color.BLACK);
+    win.setFont(BASIC);
+    win.drawString(
+        "Current Time (0 to 1): "
+            + Math.round((double) latest.time / STEPS_PER_CYCLE * 1000.0) / 1000.0,
+        this.mainWindowWidth / 32 + 5,
+        this.height / 32 + 3 * (BASIC.getSize() + 5) + BASIC.getSize() + BASIC.getSize() + 8);
+
+  }
+
+  /**
+   * Paints the parts of the UI which only change with the number of spinners, for
+   * <code>chrome</code> to cache.
+   *
+   * @param win the graphics to paint into, at the origin of the window
+   */
+  private void paintChrome(Graphics2D win) {
+
+    AffineTransform origin = win.getTransform();
+
+    win.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    // Outlines share the spinners' stroke, as they did when drawn straight after the spinners
+    win.setStroke(ZOOM_COMPENSATED);
+    win.translate(this.mainWindowWidth, 0);
+
     // WAVEFORM TRACKER TEXT AND DIVIDERS
     win.setColor(Color.WHITE);
     win.fillRect(0, -5,
-        TextTools.getTextWidth(win.getFontRenderContext(), BASIC, "X Waveform Comparison") + 10,
+        textCache.getTextWidth(win.getFontRenderContext(), BASIC, "X Waveform Comparison") + 10,
         BASIC.getSize() + 10);
     win.fillRect(0, getWaveTrackerHeight() - 5,
-        TextTools.getTextWidth(win.getFontRenderContext(), BASIC, "Y Waveform Comparison") + 10,
+        textCache.getTextWidth(win.getFontRenderContext(), BASIC, "Y Waveform Comparison") + 10,
         BASIC.getSize() + 10);
     win.setColor(Color.BLACK);
     win.setFont(BASIC);
-    win.drawString("X Waveform Comparison", 5, BASIC.getSize() + 2);
-    win.drawString("Y Waveform Comparison", 5, getWaveTrackerHeight() + BASIC.getSize() + 2);
+    textCache.drawString(win, BASIC, "X Waveform Comparison", 5, BASIC.getSize() + 2);
+    textCache.drawString(win, BASIC, "Y Waveform Comparison", 5,
+        getWaveTrackerHeight() + BASIC.getSize() + 2);
 
     win.translate(-this.mainWindowWidth, 0);
     win.drawLine(this.mainWindowWidth, 0, this.mainWindowWidth, this.height);
@@ -193,61 +433,359 @@ public class Drawer extends Driver {
     win.drawRect(0, 0, this.mainWindowWidth / 3, this.height / 6);
 
     // Numeric Settings Box Text
-    win.drawString("# of Spinners: " + spinners.seriesLength(), 5, BASIC.getSize() + 2);
+    textCache.drawString(win, BASIC, "# of Spinners: " + latest.endpointReal.length, 5,
+        BASIC.getSize() + 2);
     win.translate(0, BASIC.getSize() + 5);
-    win.drawString("Iterations per Integral: " + INTEGRATION_ACCURACY, 5, BASIC.getSize() + 2);
+    textCache.drawString(win, BASIC, "Iterations per Integral: " + INTEGRATION_ACCURACY, 5,
+        BASIC.getSize() + 2);
     win.translate(0, BASIC.getSize() + 5);
-    win.drawString("Steps per Cycle: " + STEPS_PER_CYCLE, 5, BASIC.getSize() + 2);
+    textCache.drawString(win, BASIC, "Steps per Cycle: " + STEPS_PER_CYCLE, 5, BASIC.getSize() + 2);
     win.translate(0, BASIC.getSize() + 5);
-    win.drawString("Steps per Frame: " + STEPS_PER_FRAME, 5, BASIC.getSize() + 2);
-    win.translate(0, BASIC.getSize());
-    win.drawString(
-        "Current Time (0 to 1): "
-            + Math.round((double) time.getVal() / STEPS_PER_CYCLE * 1000.0) / 1000.0, 5,
-        BASIC.getSize() + 8);
+    textCache.drawString(win, BASIC, "Steps per Frame: " + STEPS_PER_FRAME, 5, BASIC.getSize() + 2);
 
     // NEAT LITTLE LABELS
     win.setFont(BOLD);
-    win.setTransform(new AffineTransform());
+    win.setTransform(origin);
     win.translate(0, this.height - BASIC.getSize() * 4);
     win.setColor(Color.GREEN);
-    win.drawString("GOAL PATH", 5, BASIC.getSize());
+    textCache.drawString(win, BOLD, "GOAL PATH", 5, BASIC.getSize());
     win.translate(0, BASIC.getSize() + 5);
     win.setColor(Color.RED);
-    win.drawString("FOURIER APPROXIMATION PATH", 5, BASIC.getSize());
+    textCache.drawString(win, BOLD, "FOURIER APPROXIMATION PATH", 5, BASIC.getSize());
 
   }
 
   @Override
   public void update() {
 
+    resizeSpinners();
+    Frame frame = simulate();
+
+    if (isDecoupled()) {
+      // Wait for the draw thread to make room rather than dropping the frame. The wait is parked,
+      // so a stalled draw thread keeps the CPU, and bounded, so exiting is still noticed.
+      try {
+        boolean queued = false;
+        while (!queued && !isExiting()) {
+          queued = handoff.offer(frame, HANDOFF_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+      } catch (InterruptedException e) {
+        System.err.format("Thread Interrupted: %s", e.getMessage());
+        Thread.currentThread().interrupt();
+      }
+    } else {
+      apply(frame);
+    }
+
+  }
+
+  /**
+   * Adds or removes spinners as their keys are pressed. Only the constants of added spinners are
+   * derived, and only the first time they are added. The series is sampled again after each
+   * resize, on this thread, so the thread that draws never touches the series while it changes.
+   */
+  private void resizeSpinners() {
+
+    boolean more = keys[MORE_SPINNERS_KEY], fewer = keys[FEWER_SPINNERS_KEY];
+
+    if (more && !moreSpinnersHeld) {
+      spinners.addTerms(SPINNER_STEP);
+      sampleSeries();
+    }
+    if (fewer && !fewerSpinnersHeld && spinners.seriesLength() > SPINNER_STEP) {
+      spinners.removeTerms(SPINNER_STEP);
+      sampleSeries();
+    }
+
+    moreSpinnersHeld = more;
+    fewerSpinnersHeld = fewer;
+
+  }
+
+  /**
+   * Steps the series forward by one frame, without drawing anything.
+   *
+   * @return a snapshot of everything traced or drawn for the frame
+   */
+  private Frame simulate() {
+
+    double[] traceReal = new double[STEPS_PER_FRAME + 1];
+    double[] traceImg = new double[STEPS_PER_FRAME + 1];
+
+    for (int i = 0; i < STEPS_PER_FRAME; i++) {
+
+      traceReal[i] = spinners.getSolutionReal();
+      traceImg[i] = spinners.getSolutionImaginary();
+
+      time.update();
+      long start = setTimePhase.start();
+      spinners.setTime(time.getVal() / (double) STEPS_PER_CYCLE);
+      setTimePhase.stop(start);
+
+    }
+
+    traceReal[STEPS_PER_FRAME] = spinners.getSolutionReal();
+    traceImg[STEPS_PER_FRAME] = spinners.getSolutionImaginary();
+
+    return snapshot(traceReal, traceImg);
+
+  }
+
+  /**
+   * Captures the current state of the series and goal function.
+   *
+   * @param traceReal the real components of the points traced since the last snapshot, up to and
+   *                  including the current point
+   * @param traceImg  the imaginary components of the points traced since the last snapshot, up to
+   *                  and including the current point
+   */
+  private Frame snapshot(double[] traceReal, double[] traceImg) {
+
+    double[] endpointReal = new double[spinners.seriesLength()];
+    double[] endpointImg = new double[spinners.seriesLength()];
+    spinners.copyEndpoints(endpointReal, endpointImg);
+
+    return new Frame(traceReal, traceImg, goalReal[time.getVal()], goalImg[time.getVal()],
+        time.getVal(), endpointReal, endpointImg, seriesReal, seriesImg);
+
+  }
+
+  /**
+   * Draws a simulated frame into the path trace and waveform trackers, and makes it the frame
+   * whose spinners are drawn.
+   *
+   * @param frame the frame, as returned by <code>simulate</code>
+   */
+  private void apply(Frame frame) {
+
+    // The series was resized, so the path it traced so far no longer matches it
+    if (frame.seriesReal != latest.seriesReal) {
+      pathTrace.clear();
+      chrome.invalidate();
+    }
+
     // TRACING THE PATH OF THE SPINNERS
 
-    Graphics2D buffer = (Graphics2D) pathTraceBuffer.getGraphics();
+    long start = tracePhase.start();
+    Graphics2D buffer = pathTrace.createGraphics();
     buffer.setColor(Color.RED);
     zoom_compensate(buffer);
+    trace(buffer, frame.traceReal, frame.traceImg);
+    buffer.dispose();
+    updatesApplied++;
+    tracePhase.stop(start);
+
+    start = trackersPhase.start();
+    beginTracking();
+    track(frame.solutionReal(), frame.solutionImaginary(), frame.idealReal, frame.idealImg);
+    endTracking();
+    trackersPhase.stop(start);
+
+    latest = frame;
+
+  }
+
+  /**
+   * Restores the state after the given number of updates. The traces are redrawn from samples of
+   * the series and goal function at every step of the cycle, so this costs about one cycle of
+   * tracing however many updates are skipped.
+   * <br><br>
+   * Must not be called while updates are decoupled.
+   *
+   * @param updates the number of updates
+   */
+  @Override
+  public void seek(long updates) {
+
+    long steps = updates * STEPS_PER_FRAME;
+
+    time.setVal((int) (steps % STEPS_PER_CYCLE));
+    spinners.setTime(time.getVal() / (double) STEPS_PER_CYCLE);
+    updatesApplied = updates;
+    latest = snapshot(new double[0], new double[0]);
+
+    // TRACING THE PATH OF THE SPINNERS
+
+    pathTrace.clear();
+    Graphics2D buffer = pathTrace.createGraphics();
+    retrace(buffer);
+    buffer.dispose();
+
+    // WAVEFORM TRACKERS
+    // Only the frames still visible in the trackers need to be replayed
+
+    xWaveTracker.clear();
+    yWaveTracker.clear();
+    xIdealTracker.clear();
+    yIdealTracker.clear();
+    beginTracking();
+
+    for (long update = Math.max(0, updates - xWaveTracker.getWidth()); update < updates;
+        update++) {
+
+      int i = (int) ((update + 1) * STEPS_PER_FRAME % STEPS_PER_CYCLE);
+      track(seriesReal[i], seriesImg[i], goalReal[i], goalImg[i]);
+
+    }
+
+    endTracking();
+
+  }
+
+  /**
+   * Samples the series at every step of the cycle. The samples go into new arrays, since frames
+   * already handed to the thread that draws keep the old ones.
+   */
+  private void sampleSeries() {
+
+    double[] real = new double[STEPS_PER_CYCLE], img = new double[STEPS_PER_CYCLE];
+    spinners.solveUniform(real, img);
+
+    seriesReal = real;
+    seriesImg = img;
+
+  }
+
+  /**
+   * Traces the series' path as it would be after every update applied so far, from the samples
+   * handed over with the latest frame, so the series itself is never touched. Only the last cycle's
+   * worth of frames matter, since every earlier frame is traced again.
+   *
+   * @param buffer the graphics to trace into, which must be cleared
+   */
+  private void retrace(Graphics2D buffer) {
+
+    double[] seriesReal = latest.seriesReal, seriesImg = latest.seriesImg;
+
+    buffer.setColor(Color.RED);
+    zoom_compensate(buffer);
+
+    double[] traceReal = new double[STEPS_PER_FRAME + 1];
+    double[] traceImg = new double[STEPS_PER_FRAME + 1];
+
+    for (long update = Math.max(0, updatesApplied - STEPS_PER_CYCLE / STEPS_PER_FRAME);
+        update < updatesApplied; update++) {
+
+      for (int i = 0; i <= STEPS_PER_FRAME; i++) {
+        int step = (int) ((update * STEPS_PER_FRAME + i) % STEPS_PER_CYCLE);
+        traceReal[i] = seriesReal[step];
+        traceImg[i] = seriesImg[step];
+      }
+
+      trace(buffer, traceReal, traceImg);
+
+    }
+
+  }
+
+  /**
+   * Traces the goal function's path.
+   *
+   * @param buffer the graphics to trace into
+   */
+  private void paintGoal(Graphics2D buffer) {
+
+    zoom_compensate(buffer);
+    buffer.setColor(Color.GREEN);
+
+    for (int i = 0; i < STEPS_PER_CYCLE; i++) {
+
+      PEN.setFrame(goalReal[i] - 0.5 * ZOOM_FACTOR,
+          goalImg[i] - 0.5 * ZOOM_FACTOR,
+          5 / ZOOM_FACTOR, 5 / ZOOM_FACTOR);
+
+      buffer.fill(PEN);
+    }
+
+  }
+
+  /**
+   * Traces one frame's worth of the series' path.
+   *
+   * @param buffer the graphics to trace into, zoom compensated
+   * @param real   the real components of the points traced during the frame, up to and including
+   *               the point the next frame starts from
+   * @param img    the imaginary components of the points traced during the frame, up to and
+   *               including the point the next frame starts from
+   */
+  private void trace(Graphics2D buffer, double[] real, double[] img) {
+
+    if (traceMode == TraceMode.POLYLINE) {
+
+      // One stroke for the whole frame, ending where the next frame's stroke begins
+      TRACE.reset();
+      TRACE.moveTo(real[0], img[0]);
+      for (int i = 1; i < real.length; i++) {
+        TRACE.lineTo(real[i], img[i]);
+      }
+
+      Stroke restore = buffer.getStroke();
+      buffer.setStroke(TRACE_STROKE);
+      buffer.draw(TRACE);
+      buffer.setStroke(restore);
+
+    } else {
+
+      AffineTransform restore = buffer.getTransform();
+
+      // The last point is left for the next frame, which starts from it
+      for (int i = 0; i < real.length - 1; i++) {
+
+        buffer.setTransform(restore);
+        spinners.drawPoint(buffer, real[i], img[i]);
+
+      }
+
+      buffer.setTransform(restore);
+
+    }
+
+  }
+
+  /**
+   * Chooses how the path of the series is traced from now on. Defaults to
+   * <code>TraceMode.POLYLINE</code>.
+   *
+   * @param traceMode the trace mode
+   */
+  public void setTraceMode(TraceMode traceMode) {
+    this.traceMode = traceMode;
+  }
+
+  private void beginTracking() {
+
     xWaveTracker.beginFrame();
     yWaveTracker.beginFrame();
     xIdealTracker.beginFrame();
     yIdealTracker.beginFrame();
-    AffineTransform restore = buffer.getTransform();
 
-    for (int i = 0; i < STEPS_PER_FRAME; i++) {
+  }
 
-      buffer.setTransform(restore);
-      spinners.drawCurrentPoint(buffer);
+  private void endTracking() {
 
-      time.update();
-      spinners.setTime(time.getVal() / (double) STEPS_PER_CYCLE);
+    xWaveTracker.endFrame();
+    yWaveTracker.endFrame();
+    xIdealTracker.endFrame();
+    yIdealTracker.endFrame();
 
-    }
+  }
 
-    xWaveTracker.drawFrameAndAdvance(draw -> {
+  /**
+   * Advances every waveform tracker by one frame. Must be called between
+   * <code>beginTracking</code> and <code>endTracking</code>.
+   *
+   * @param solutionReal the real component of the series
+   * @param solutionImg  the imaginary component of the series
+   * @param idealReal    the real component of the goal function
+   * @param idealImg     the imaginary component of the goal function
+   */
+  private void track(double solutionReal, double solutionImg, double idealReal,
+      double idealImg) {
 
-      Complex solution = spinners.getSolution();
+    xWaveTracker.drawFrameAndAdvance(draw -> {
 
       draw.setColor(Color.RED);
-      PEN.setFrame(0, -this.height / 2 * (solution.getReal() + minReal) /
+      PEN.setFrame(0, -this.height / 2 * (solutionReal + minReal) /
           (maxReal - minReal + 2 * this.height / WAVE_TRACKER_BUFFER_FRACTION)
           + this.height / WAVE_TRACKER_BUFFER_FRACTION + 32, 4, 4);
 
@@ -257,10 +795,8 @@ public class Drawer extends Driver {
 
     xIdealTracker.drawFrameAndAdvance(draw -> {
 
-      Complex solution = func.solveAtTime(time.getVal() / (double) STEPS_PER_CYCLE);
-
       draw.setColor(Color.GREEN);
-      PEN.setFrame(0, -this.height / 2 * (solution.getReal() + minReal) /
+      PEN.setFrame(0, -this.height / 2 * (idealReal + minReal) /
           (maxReal - minReal + 2 * this.height / WAVE_TRACKER_BUFFER_FRACTION)
           + this.height / WAVE_TRACKER_BUFFER_FRACTION + 32, 8, 8);
 
@@ -270,10 +806,8 @@ public class Drawer extends Driver {
 
     yWaveTracker.drawFrameAndAdvance(draw -> {
 
-      Complex solution = spinners.getSolution();
-
       draw.setColor(Color.RED);
-      PEN.setFrame(0, -this.height / 2 * (solution.getImaginary() + minImg) /
+      PEN.setFrame(0, -this.height / 2 * (solutionImg + minImg) /
           (maxImg - minImg + 2 * this.height / WAVE_TRACKER_BUFFER_FRACTION)
           + this.height / WAVE_TRACKER_BUFFER_FRACTION + 32, 4, 4);
 
@@ -283,10 +817,8 @@ public class Drawer extends Driver {
 
     yIdealTracker.drawFrameAndAdvance(draw -> {
 
-      Complex solution = func.solveAtTime(time.getVal() / (double) STEPS_PER_CYCLE);
-
       draw.setColor(Color.GREEN);
-      PEN.setFrame(0, -this.height / 2 * (solution.getImaginary() + minImg) /
+      PEN.setFrame(0, -this.height / 2 * (idealImg + minImg) /
           (maxImg - minImg + 2 * this.height / WAVE_TRACKER_BUFFER_FRACTION)
           + this.height / WAVE_TRACKER_BUFFER_FRACTION + 32, 8, 8);
 
@@ -294,12 +826,6 @@ public class Drawer extends Driver {
 
     });
 
-    buffer.dispose();
-    xWaveTracker.endFrame();
-    yWaveTracker.endFrame();
-    xIdealTracker.endFrame();
-    yIdealTracker.endFrame();
-
   }
 
   private void zoom_compensate(Graphics2D win) {
@@ -314,4 +840,44 @@ public class Drawer extends Driver {
     return this.height / WAVE_TRACKER_COUNT;
   }
 
+  /**
+   * An immutable snapshot of one simulated frame, handed from <code>update</code> to
+   * <code>draw</code>. Its arrays are never modified once the frame is created.
+   */
+  private static final class Frame {
+
+    // Points traced by the series during the frame, oldest first. The last is also the first point
+    // of the next frame.
+    private final double[] traceReal, traceImg;
+    private final double idealReal, idealImg;
+    private final int time;
+    // Spinner endpoints at the end of the frame. The last is the series' solution.
+    private final double[] endpointReal, endpointImg;
+    // The series at every step of the cycle. Shared by every frame until the series is resized.
+    private final double[] seriesReal, seriesImg;
+
+    private Frame(double[] traceReal, double[] traceImg, double idealReal, double idealImg,
+        int time, double[] endpointReal, double[] endpointImg, double[] seriesReal,
+        double[] seriesImg) {
+      this.traceReal = traceReal;
+      this.traceImg = traceImg;
+      this.idealReal = idealReal;
+      this.idealImg = idealImg;
+      this.time = time;
+      this.endpointReal = endpointReal;
+      this.endpointImg = endpointImg;
+      this.seriesReal = seriesReal;
+      this.seriesImg = seriesImg;
+    }
+
+    private double solutionReal() {
+      return endpointReal.length > 0 ? endpointReal[endpointReal.length - 1] : 0;
+    }
+
+    private double solutionImaginary() {
+      return endpointImg.length > 0 ? endpointImg[endpointImg.length - 1] : 0;
+    }
+
+  }
+
 }
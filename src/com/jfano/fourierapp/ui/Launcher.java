@@ -0,0 +1,35 @@
+package com.jfano.fourierapp.ui;
+
+/**
+ * Entry point of the program. Takes the same options as <code>Drawer.main</code>.
+ * <br><br>
+ * AWT decides whether it is headless once, while its classes are initialized, and
+ * <code>Drawer</code> is a <code>Canvas</code>, so by the time <code>Drawer.main</code> runs it is
+ * too late to ask for headless mode. This class touches no AWT class before choosing the mode, so
+ * offline rendering works without a display. Launching <code>Drawer</code> directly also works, if
+ * <code>-Djava.awt.headless=true</code> is passed to the JVM when rendering offline.
+ */
+public final class Launcher {
+
+  private Launcher() {
+  }
+
+  /**
+   * Runs the drawer, headless if it renders offline.
+   *
+   * @param args the options, as given to <code>Drawer.main</code>
+   */
+  public static void main(String[] args) {
+
+    for (String arg : args) {
+      if (arg.equals("--png") || arg.equals("--rgba")) {
+        System.setProperty("java.awt.headless", "true");
+        break;
+      }
+    }
+
+    Drawer.main(args);
+
+  }
+
+}
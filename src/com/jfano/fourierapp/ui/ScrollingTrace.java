@@ -2,24 +2,31 @@ package com.jfano.fourierapp.ui;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferInt;
 import java.util.function.Consumer;
 
 /**
  * Object representing a scrolling image in which a path is traced over time.
  * <br><br>
- * The trace is drawn into a dedicated <code>BufferedImage</code>. It can later be copied into any
- * other <code>Graphics2D</code> to display the trace.
+ * The trace is drawn into a dedicated <code>BufferedImage</code> which is used as a ring of
+ * columns. Rather than moving the whole image to scroll it, each new frame is written over the
+ * oldest column and the head of the ring moves back by one. The trace can later be drawn into any
+ * other <code>Graphics2D</code>, unrolled so the newest frame is on the left.
  *
  * @author Jacob Fano
  */
 public class ScrollingTrace {
 
   private static final Color clear = new Color(0, 0, 0, 0);
-  private final BufferedImage input;
-  private final BufferedImage buffer;
-  private Graphics2D inputCurrentGraphics, bufferCurrentGraphics;
+  // Frames are drawn a second time, wrapped around to the start of the ring, when they begin
+  // this close to its end. Frames wider than this may be cut off.
+  private static final int WRAP_MARGIN = 16;
+  private final BufferedImage ring;
+  private BufferedImage unrolled;
+  private Graphics2D ringCurrentGraphics;
+  // Column of the ring holding the newest frame
+  private int head = 0;
 
   /**
    * Creates the scrolling trace object with the given canvas size.
@@ -29,99 +36,125 @@ public class ScrollingTrace {
    */
   public ScrollingTrace(int width, int height) {
 
-    input = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-    buffer = new BufferedImage(width + 5, height, BufferedImage.TYPE_INT_ARGB);
+    ring = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
 
-    Graphics2D win;
-
-    win = (Graphics2D) input.getGraphics();
-    win.setBackground(clear);
-    win.clearRect(0, 0, width, height);
-    win.dispose();
-
-    win = (Graphics2D) buffer.getGraphics();
+    Graphics2D win = (Graphics2D) ring.getGraphics();
     win.setBackground(clear);
     win.clearRect(0, 0, width, height);
     win.dispose();
 
   }
 
-  /**
-   * Helper function to copy one <code>BufferedImage</code> into another.
-   * <br><br>
-   * <a href="https://stackoverflow.com/a/2826123">Code pulled from here</a>
-   *
-   * @param src source <code>BufferedImage</code>
-   * @param dst destination <code>BufferedImage</code>
-   * @param dx  x offset of the copy
-   * @param dy  y offset of the copy
-   */
-  private static void copySrcIntoDstAt(final BufferedImage src,
-      final BufferedImage dst, final int dx, final int dy) {
-    int[] srcbuf = ((DataBufferInt) src.getRaster().getDataBuffer()).getData();
-    int[] dstbuf = ((DataBufferInt) dst.getRaster().getDataBuffer()).getData();
-    int width = src.getWidth();
-    int height = src.getHeight();
-    int dstoffs = dx + dy * dst.getWidth();
-    int srcoffs = 0;
-    for (int y = 0; y < height; y++, dstoffs += dst.getWidth(), srcoffs += width) {
-      System.arraycopy(srcbuf, srcoffs, dstbuf, dstoffs, width);
-    }
-  }
-
   public int getWidth() {
 
-    return input.getWidth();
+    return ring.getWidth();
 
   }
 
   public int getHeight() {
 
-    return input.getHeight();
+    return ring.getHeight();
+
+  }
+
+  /**
+   * Draws the current contents of this trace into the given <code>Graphics2D</code> at its origin,
+   * with the newest frame on the left. The ring is copied as two slices, so nothing is moved.
+   *
+   * @param win the graphics to draw the trace into
+   */
+  public void drawTrace(Graphics2D win) {
+
+    int width = ring.getWidth(), height = ring.getHeight();
+
+    // Columns [head, width) hold the newest frames, then the ring wraps around to [0, head)
+    win.drawImage(ring, 0, 0, width - head, height, head, 0, width, height, null);
+    if (head > 0) {
+      win.drawImage(ring, width - head, 0, width, height, 0, 0, head, height, null);
+    }
 
   }
 
   /**
-   * Get the current contents of this trace.
+   * Get the current contents of this trace, with the newest frame on the left.
+   * <br><br>
+   * This copies the whole trace into a separate image. Prefer <code>drawTrace</code> when the
+   * trace only needs to be displayed.
    *
    * @return a <code>BufferedImage</code> containing the trace
    */
   public BufferedImage getTrace() {
-    return input;
+
+    if (unrolled == null) {
+      unrolled = new BufferedImage(ring.getWidth(), ring.getHeight(),
+          BufferedImage.TYPE_INT_ARGB);
+    }
+
+    Graphics2D win = unrolled.createGraphics();
+    win.setBackground(clear);
+    win.clearRect(0, 0, unrolled.getWidth(), unrolled.getHeight());
+    drawTrace(win);
+    win.dispose();
+
+    return unrolled;
+
+  }
+
+  /**
+   * Erases the whole trace, as if it had just been created.
+   */
+  public void clear() {
+
+    Graphics2D win = ring.createGraphics();
+    win.setBackground(clear);
+    win.clearRect(0, 0, ring.getWidth(), ring.getHeight());
+    win.dispose();
+
+    head = 0;
+
   }
 
   public void beginFrame() {
 
-    inputCurrentGraphics = (Graphics2D) input.getGraphics();
-    bufferCurrentGraphics = (Graphics2D) buffer.getGraphics();
+    ringCurrentGraphics = (Graphics2D) ring.getGraphics();
+    ringCurrentGraphics.setBackground(clear);
 
   }
 
   public void endFrame() {
 
-    inputCurrentGraphics.dispose();
-    bufferCurrentGraphics.dispose();
+    ringCurrentGraphics.dispose();
 
   }
 
   /**
-   * Advance the scrolling of the image by copying it, then draw the newest trace frame.
+   * Advance the scrolling of the image by one column, then draw the newest trace frame.
    *
-   * @param frame function to draw the shape that will be traced
+   * @param frame function to draw the shape that will be traced. It draws as if the newest column
+   *              were at x = 0
    */
   public void drawFrameAndAdvance(Consumer<Graphics2D> frame) {
 
-    // Move the entire image by 1 pixel to create the scrolling effect
-    copySrcIntoDstAt(input, buffer, 1, 0);
+    int width = ring.getWidth();
 
-    // Draw the current trace frame
-    Graphics2D win = inputCurrentGraphics;
-    win.setBackground(clear);
-    win.clearRect(0, 0, input.getWidth(), input.getHeight());
+    // Move the head back one column, so the oldest column is the one overwritten
+    head = (head + width - 1) % width;
+
+    Graphics2D win = ringCurrentGraphics;
+    win.clearRect(head, 0, 1, ring.getHeight());
+
+    // Draw the current trace frame at the head
+    AffineTransform restore = win.getTransform();
+    win.translate(head, 0);
     frame.accept(win);
+    win.setTransform(restore);
 
-    // Add the original image back, on top of the latest trace
-    win.drawImage(buffer, 0, 0, null);
+    // Wrap whatever part of the frame ran off the end of the ring around to its start
+    if (head > width - WRAP_MARGIN) {
+      win.translate(head - width, 0);
+      frame.accept(win);
+      win.setTransform(restore);
+    }
 
   }
 
@@ -0,0 +1,148 @@
+package com.jfano.fourierapp.state;
+
+import com.jfano.fourierapp.math.functions.ComplexTimeFunction;
+import com.jfano.fourierapp.math.functions.SquareFunction;
+import com.jfano.fourierapp.state.FourierSeriesSpinners.Derivation;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Checks that series grown or shrunk in place are stored with exactly their own spinners, and load
+ * back the same as a series derived at that length. Run by <code>ant test</code>, and exits with a
+ * non-zero status if any check fails.
+ */
+public final class FourierSeriesSpinnersTest {
+
+  private static final ComplexTimeFunction GOAL = new SquareFunction();
+  private static final int ITERATIONS = 400;
+  // Grown and shrunk series sum their constants in the same order as fresh ones, but allow for
+  // rounding should that ever change
+  private static final double TOLERANCE = 1e-9;
+
+  private static int failures = 0;
+
+  private FourierSeriesSpinnersTest() {
+  }
+
+  public static void main(String[] args) throws IOException {
+
+    // Growing past the storage's capacity doubles it, leaving unused room after the last spinner
+    FourierSeriesSpinners grown = new FourierSeriesSpinners(GOAL, 10, ITERATIONS, Derivation.FFT);
+    grown.addTerms(7);
+    checkStored("grown", grown, 17);
+
+    // Shrinking keeps the removed spinners' constants after the last spinner
+    FourierSeriesSpinners shrunk = new FourierSeriesSpinners(GOAL, 30, ITERATIONS, Derivation.FFT);
+    shrunk.removeTerms(11);
+    checkStored("shrunk", shrunk, 19);
+
+    checkStoreRoundTrip();
+
+    if (failures > 0) {
+      System.err.format("%d check(s) failed%n", failures);
+      System.exit(1);
+    }
+
+    System.out.println("All checks passed");
+
+  }
+
+  /**
+   * Stores a series into a buffer of exactly the size a <code>CoefficientStore</code> file holds,
+   * and checks the series read back from it.
+   */
+  private static void checkStored(String name, FourierSeriesSpinners series, int seriesLength) {
+
+    check(series.seriesLength() == seriesLength,
+        "%s series has %d spinners, expected %d", name, series.seriesLength(), seriesLength);
+
+    DoubleBuffer stored = DoubleBuffer.allocate(2 * series.seriesLength());
+    try {
+      series.putAmplitudes(stored);
+    } catch (RuntimeException e) {
+      check(false, "storing %s series threw %s", name, e);
+      return;
+    }
+    check(!stored.hasRemaining(), "%s series left %d values unwritten", name, stored.remaining());
+    stored.flip();
+
+    FourierSeriesSpinners loaded =
+        new FourierSeriesSpinners(stored, GOAL, ITERATIONS, Derivation.FFT);
+    FourierSeriesSpinners fresh =
+        new FourierSeriesSpinners(GOAL, seriesLength, ITERATIONS, Derivation.FFT);
+
+    check(loaded.seriesLength() == seriesLength,
+        "loaded %s series has %d spinners, expected %d", name, loaded.seriesLength(), seriesLength);
+
+    for (int pos = 0; pos < Math.min(loaded.seriesLength(), seriesLength); pos++) {
+
+      Spinner expected = series.getSpinner(pos), actual = loaded.getSpinner(pos);
+      check(matches(expected, actual, 0),
+          "loaded %s series differs at spinner %d", name, pos);
+      check(matches(fresh.getSpinner(pos), actual, TOLERANCE),
+          "loaded %s series differs from a fresh series at spinner %d", name, pos);
+
+    }
+
+  }
+
+  /**
+   * Checks a series stored by a <code>CoefficientStore</code> is mapped back in unchanged.
+   */
+  private static void checkStoreRoundTrip() throws IOException {
+
+    Path directory = Files.createTempDirectory("fourierapp-test");
+    byte[] hash = new byte[32];
+
+    try {
+
+      CoefficientStore store = new CoefficientStore(directory);
+      FourierSeriesSpinners derived = store.load(hash, GOAL, 21, ITERATIONS, Derivation.FFT);
+      FourierSeriesSpinners mapped = store.load(hash, GOAL, 21, ITERATIONS, Derivation.FFT);
+
+      for (int pos = 0; pos < derived.seriesLength(); pos++) {
+        check(matches(derived.getSpinner(pos), mapped.getSpinner(pos), 0),
+            "stored series differs at spinner %d", pos);
+      }
+
+    } finally {
+      try (Stream<Path> files = Files.list(directory)) {
+        for (Path file : (Iterable<Path>) files::iterator) {
+          Files.delete(file);
+        }
+      }
+      Files.delete(directory);
+    }
+
+  }
+
+  /**
+   * Checks two spinners have the same constant and frequency, by solving both at a few times.
+   */
+  private static boolean matches(Spinner expected, Spinner actual, double tolerance) {
+
+    double[] want = new double[2], got = new double[2];
+
+    for (double time : new double[]{0, 0.1, 0.35}) {
+      expected.solveAtTime(time, want);
+      actual.solveAtTime(time, got);
+      if (Math.abs(want[0] - got[0]) > tolerance || Math.abs(want[1] - got[1]) > tolerance) {
+        return false;
+      }
+    }
+
+    return true;
+
+  }
+
+  private static void check(boolean passed, String format, Object... args) {
+    if (!passed) {
+      failures++;
+      System.err.format("FAILED: " + format + "%n", args);
+    }
+  }
+
+}